@@ -6,6 +6,7 @@ import org.rowland.jinix.io.JinixFileDescriptor;
 import org.rowland.jinix.io.JinixPipe;
 import org.rowland.jinix.lang.JinixRuntime;
 import org.rowland.jinix.lang.ProcessSignalHandler;
+import org.rowland.jinix.naming.AttributedLookupResult;
 import org.rowland.jinix.naming.NameSpace;
 import org.rowland.jinix.proc.ProcessManager;
 import org.rowland.jinix.terminal.TerminalAttributes;
@@ -23,6 +24,21 @@ public class ConsoleFakeJinixRuntime extends JinixRuntime {
         return null;
     }
 
+    @Override
+    public AttributedLookupResult lookupWithAttributes(String path) {
+        return null;
+    }
+
+    @Override
+    public Object[] lookupAll(String[] paths) {
+        return new Object[paths.length];
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return false;
+    }
+
     @Override
     public void bind(String path, Object obj) {
 
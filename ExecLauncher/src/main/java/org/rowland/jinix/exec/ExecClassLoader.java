@@ -106,29 +106,51 @@ public class ExecClassLoader extends SecureClassLoader {
     }
 
     void addLibraryToClasspath(String jarFileName) {
+        addLibrariesToClasspath(new String[] {jarFileName});
+    }
+
+    /**
+     * Add each jar file from the first directory of the library path that holds it. The jar files are looked up in
+     * every directory of the library path with a single batch lookup.
+     *
+     * @param jarFileNames the names of the jar files
+     */
+    private void addLibrariesToClasspath(String[] jarFileNames) {
         String libraryPathStr = JinixSystem.getJinixProperties().getProperty(JinixRuntime.JINIX_LIBRARY_PATH);
-        if (libraryPathStr == null || libraryPathStr.isEmpty()) {
+        if (libraryPathStr == null || libraryPathStr.isEmpty() || jarFileNames.length == 0) {
             return;
         }
 
-        Context ctx = JinixRuntime.getRuntime().getNamingContext();
         String[] libraryPath = libraryPathStr.split(":");
-        for(String libDir : libraryPath) {
-            String libPathName = libDir + "/" + jarFileName;
-            try {
-                RemoteFileHandle jarFile = (RemoteFileHandle) ctx.lookup(libPathName);
-                RemoteJarFileAccessor jarFileAccessor = (RemoteJarFileAccessor) jarFile.getParent().getRemoteFileAccessor(
-                        JinixRuntime.getRuntime().getPid(), jarFile.getPath(), EnumSet.noneOf(StandardOpenOption.class));
-                remoteJarList.add(new RemoteJarHolder(libPathName, jarFileAccessor));
-                break;
-            } catch (NameNotFoundException e) {
-                // Ignore. If we don't find the continue searching.
-            } catch (NamingException e) {
-                throw new RuntimeException("Internal error", e);
-            } catch (FileAlreadyExistsException | NoSuchFileException e) {
-                throw new RuntimeException("Internal error: ", e); // This should never happen
-            } catch (RemoteException e) {
-                throw new RuntimeException(e);
+        String[] libPathNames = new String[jarFileNames.length * libraryPath.length];
+        for (int j = 0; j < jarFileNames.length; j++) {
+            for (int d = 0; d < libraryPath.length; d++) {
+                String libPathName = libraryPath[d] + "/" + jarFileNames[j];
+                if (!libPathName.startsWith("/")) {
+                    libPathName = "/" + libPathName; // Relative to the root, as a lookup in the root naming context
+                }
+                libPathNames[j * libraryPath.length + d] = libPathName;
+            }
+        }
+
+        Object[] lookups = JinixRuntime.getRuntime().lookupAll(libPathNames);
+        for (int j = 0; j < jarFileNames.length; j++) {
+            for (int d = 0; d < libraryPath.length; d++) {
+                int i = j * libraryPath.length + d;
+                if (lookups[i] == null) {
+                    continue; // If we don't find the jar continue searching.
+                }
+                try {
+                    RemoteFileHandle jarFile = (RemoteFileHandle) lookups[i];
+                    RemoteJarFileAccessor jarFileAccessor = (RemoteJarFileAccessor) jarFile.getParent().getRemoteFileAccessor(
+                            JinixRuntime.getRuntime().getPid(), jarFile.getPath(), EnumSet.noneOf(StandardOpenOption.class));
+                    remoteJarList.add(new RemoteJarHolder(libPathNames[i], jarFileAccessor));
+                    break;
+                } catch (FileAlreadyExistsException | NoSuchFileException e) {
+                    throw new RuntimeException("Internal error: ", e); // This should never happen
+                } catch (RemoteException e) {
+                    throw new RuntimeException(e);
+                }
             }
         }
     }
@@ -350,10 +372,7 @@ public class ExecClassLoader extends SecureClassLoader {
      * Resolve all of the jar files in the manifest classpath in the library path, and add to the remoteJarList list.
      */
     private void resolveExecClassPath() throws IOException {
-        String[] execClassPath = getLibraryNames();
-        for (String jarFile : execClassPath) {
-            addLibraryToClasspath(jarFile);
-        }
+        addLibrariesToClasspath(getLibraryNames());
     }
 
     public void close() {
@@ -375,6 +375,7 @@ public class ExecLauncher {
                 rootNameSpace = (NameSpace) registry.lookup("root");
                 es = (ExecServer) (rootNameSpace.lookup(ExecServer.SERVER_NAME));
                 pm = (ProcessManager) rootNameSpace.lookup(ProcessManager.SERVER_NAME);
+                LookupCache.registerForChangeNotification(rootNameSpace);
             } catch (NotBoundException e) {
                 System.err.println("ExecLauncher: Failed to locate root NameSpace in RMI Registry");
                 return;
@@ -483,7 +484,7 @@ public class ExecLauncher {
             if (ExecLauncher.translatorNode != null) {
                 if (!translatorBound) {
                     try {
-                        rootNameSpace.translatorFailure(translatorNodePath);
+                        rootNameSpace.translatorFailure(translatorNodePath, pid);
                     } catch (RemoteException e) {
                         // Ignore as this should be unlikely, and there is nothing that we can do.
                     }
@@ -493,6 +494,9 @@ public class ExecLauncher {
                 ExecLauncher.stdOut.close();
                 ExecLauncher.stdErr.close();
             }
+            if (rootNameSpace != null) {
+                LookupCache.unregisterForChangeNotification(rootNameSpace);
+            }
             RemoteFileAccessor lastFC = null;
             int retryCount = 0;
             while (!JinixFileDescriptor.openFileDescriptors.isEmpty()) {
@@ -506,7 +510,11 @@ public class ExecLauncher {
                 } else {
                     lastFC = fd.getHandle();
                 }
-                fd.close();
+                try {
+                    fd.close();
+                } catch (RuntimeException e) {
+                    // The file descriptor is removed from openFileDescriptors even when its close fails
+                }
             }
 
             if (execCL != null) {
@@ -598,8 +606,90 @@ public class ExecLauncher {
 
         @Override
         public Object lookup(String path) {
+            LookupCache.Entry cached = LookupCache.get(path);
+            if (cached != null) {
+                return cached.object;
+            }
+            try {
+                long generation = LookupCache.getGeneration();
+                Object obj = rootNameSpace.lookup(pid, path);
+                LookupCache.put(path, obj, generation);
+                return obj;
+            } catch (RemoteException e) {
+                if (e.getCause() != null) {
+                    throw new RuntimeException("Internal error", e.getCause());
+                }
+                throw new RuntimeException("Transport error", e);
+            }
+        }
+
+        @Override
+        public AttributedLookupResult lookupWithAttributes(String path) {
             try {
-                return rootNameSpace.lookup(pid, path);
+                long generation = LookupCache.getGeneration();
+                AttributedLookupResult result = rootNameSpace.lookupWithAttributes(pid, path);
+                LookupCache.put(path, (result != null ? result.object : null), generation);
+                return result;
+            } catch (RemoteException e) {
+                if (e.getCause() != null) {
+                    throw new RuntimeException("Internal error", e.getCause());
+                }
+                throw new RuntimeException("Transport error", e);
+            }
+        }
+
+        @Override
+        public Object[] lookupAll(String[] paths) {
+            Object[] results = new Object[paths.length];
+            List<Integer> uncached = new ArrayList<Integer>(paths.length);
+            for (int i = 0; i < paths.length; i++) {
+                LookupCache.Entry cached = LookupCache.get(paths[i]);
+                if (cached != null) {
+                    results[i] = cached.object;
+                } else {
+                    uncached.add(i);
+                }
+            }
+            if (uncached.isEmpty()) {
+                return results;
+            }
+
+            String[] lookupPaths = new String[uncached.size()];
+            for (int i = 0; i < lookupPaths.length; i++) {
+                lookupPaths[i] = paths[uncached.get(i)];
+            }
+            try {
+                long generation = LookupCache.getGeneration();
+                Object[] found = rootNameSpace.lookupAll(pid, lookupPaths);
+                for (int i = 0; i < lookupPaths.length; i++) {
+                    results[uncached.get(i)] = found[i];
+                    LookupCache.put(lookupPaths[i], found[i], generation);
+                }
+                return results;
+            } catch (RemoteException e) {
+                if (e.getCause() != null) {
+                    throw new RuntimeException("Internal error", e.getCause());
+                }
+                throw new RuntimeException("Transport error", e);
+            }
+        }
+
+        @Override
+        public boolean exists(String path) {
+            LookupCache.Entry cached = LookupCache.get(path);
+            if (cached != null) {
+                return (cached.object != null);
+            }
+            try {
+                long generation = LookupCache.getGeneration();
+                Boolean exists = rootNameSpace.probe(pid, path);
+                if (exists == null) {
+                    return (lookup(path) != null); // Under a translator that is not running
+                }
+                if (!exists) {
+                    LookupCache.put(path, null, generation);
+                }
+                return exists;
             } catch (RemoteException e) {
                 if (e.getCause() != null) {
                     throw new RuntimeException("Internal error", e.getCause());
@@ -689,6 +779,14 @@ public class ExecLauncher {
                 if (stdout == null) stdout = ExecLauncher.stdOut;
                 if (stderr == null) stderr = ExecLauncher.stdErr;
 
+                // Anything this process has written, but is still holding in a write behind buffer, must reach the
+                // server before the child process can write to the same files.
+                stdout.flushPendingWrites();
+                stderr.flushPendingWrites();
+
+                // Likewise, input this process has read ahead, but not consumed, belongs to the child process.
+                stdin.returnReadAhead();
+
                 // Duplicate the file descriptors. This is necessary to prevent the
                 // file descriptors from being closed when the child process terminates as our
                 // parent has the same file descriptors and may continue to use them.
@@ -700,6 +798,8 @@ public class ExecLauncher {
                         stdin.getHandle(), stdout.getHandle(), stderr.getHandle());
             } catch (RemoteException e) {
                 throw new RuntimeException(e);
+            } catch (IOException e) {
+                throw new RuntimeException("IOException sharing file descriptors before exec", e);
             }
         }
 
@@ -825,8 +925,8 @@ public class ExecLauncher {
         @Override
         public void bindTranslator(Remote translator) {
             try {
+                rootNameSpace.translatorReady(translatorNodePath, pid, translator);
                 translatorBound = true;
-                rootNameSpace.bind(translatorNodePath, translator);
             } catch (RemoteException e) {
                 throw new RuntimeException(e);
             }
@@ -0,0 +1,149 @@
+package org.rowland.jinix.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * A FileDataChannel over an AF_UNIX stream. The server end is FileDataChannelServer.
+ *
+ * Requests are a single byte op code, the process group id, and a length, followed by the bytes for a write. A read
+ * is answered with a count followed by that many bytes, and a write with the count written. A count of EOF indicates
+ * end of file, and a count of ERROR is followed by an error message. The length of a request is at most
+ * MAX_TRANSFER. Larger reads are shortened, and larger writes are sent as several requests. The server closes the
+ * channel on a request with an invalid length.
+ */
+class AFUNIXFileDataChannel extends FileDataChannel {
+
+    static final byte OP_READ = 1;
+    static final byte OP_WRITE = 2;
+
+    static final int EOF = -1;
+    static final int ERROR = -2;
+
+    static final int MAX_TRANSFER = 4 * 1024 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private byte[] scratch = new byte[0]; // Reused by the ByteBuffer reads and writes
+
+    private AFUNIXFileDataChannel(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(socket.getInputStream());
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 16));
+    }
+
+    /**
+     * Connect to the data channel socket returned by RemoteFileAccessor.openDataChannel().
+     *
+     * @param socketPath the host path of the AF_UNIX socket
+     * @return the data channel, or null if AF_UNIX sockets are not available in this process
+     * @throws IOException if the connection fails
+     */
+    static AFUNIXFileDataChannel connect(String socketPath) throws IOException {
+        if (!AFUNIXSupport.isAvailable()) {
+            return null;
+        }
+        return new AFUNIXFileDataChannel(AFUNIXSupport.connect(new File(socketPath)));
+    }
+
+    @Override
+    public synchronized byte[] read(int pgid, int len) throws IOException {
+        out.writeByte(OP_READ);
+        out.writeInt(pgid);
+        out.writeInt(Math.min(len, MAX_TRANSFER));
+        out.flush();
+
+        int count = readCount();
+        if (count == EOF) {
+            return null;
+        }
+        byte[] b = new byte[count];
+        in.readFully(b);
+        return b;
+    }
+
+    @Override
+    public synchronized int write(int pgid, byte[] b, int off, int len) throws IOException {
+        int written = 0;
+        while (written < len) {
+            int chunk = Math.min(len - written, MAX_TRANSFER);
+            out.writeByte(OP_WRITE);
+            out.writeInt(pgid);
+            out.writeInt(chunk);
+            out.flush();
+            socket.getOutputStream().write(b, off + written, chunk); // Bypass the header buffer
+            int count = readCount();
+            written += count;
+            if (count < chunk) {
+                break;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Read through a scratch array reused across calls, as the socket stream only reads into arrays.
+     */
+    @Override
+    public synchronized int read(int pgid, ByteBuffer dst) throws IOException {
+        out.writeByte(OP_READ);
+        out.writeInt(pgid);
+        out.writeInt(Math.min(dst.remaining(), MAX_TRANSFER));
+        out.flush();
+
+        int count = readCount();
+        if (count == EOF) {
+            return -1;
+        }
+        if (dst.hasArray()) {
+            in.readFully(dst.array(), dst.arrayOffset() + dst.position(), count);
+            dst.position(dst.position() + count);
+        } else {
+            byte[] b = scratch(count);
+            in.readFully(b, 0, count);
+            dst.put(b, 0, count);
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized int write(int pgid, ByteBuffer src) throws IOException {
+        if (src.hasArray()) {
+            return super.write(pgid, src);
+        }
+        int len = src.remaining();
+        byte[] b = scratch(len);
+        src.get(b, 0, len);
+        return write(pgid, b, 0, len);
+    }
+
+    private byte[] scratch(int len) {
+        if (scratch.length < len) {
+            scratch = new byte[Math.max(len, FileDataChannel.THRESHOLD)];
+        }
+        return scratch;
+    }
+
+    private int readCount() throws IOException {
+        int count = in.readInt();
+        if (count == ERROR) {
+            throw new IOException(in.readUTF());
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ignore. The server end closes when it sees the socket close.
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.rowland.jinix.io;
+
+import org.newsclub.net.unix.AFUNIXServerSocket;
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Access to AF_UNIX sockets through junixsocket. junixsocket is only on the classpath when Jinix runs with rmi=AFUNIX,
+ * so all references to its classes are kept in the Native holder class, which is not loaded until the junixsocket
+ * classes have been found. Callers must check isAvailable() before calling connect() or bind().
+ */
+class AFUNIXSupport {
+
+    private static final boolean available = checkAvailable();
+
+    private static boolean checkAvailable() {
+        try {
+            Class.forName("org.newsclub.net.unix.AFUNIXSocket", false, AFUNIXSupport.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+        return Native.isSupported();
+    }
+
+    static boolean isAvailable() {
+        return available;
+    }
+
+    static Socket connect(File socketFile) throws IOException {
+        return Native.connect(socketFile);
+    }
+
+    static ServerSocket bind(File socketFile) throws IOException {
+        return Native.bind(socketFile);
+    }
+
+    /**
+     * Holder that is only initialized after the junixsocket classes are known to be present.
+     */
+    private static class Native {
+
+        private static boolean isSupported() {
+            try {
+                return AFUNIXSocket.isSupported();
+            } catch (LinkageError e) {
+                return false;
+            }
+        }
+
+        private static Socket connect(File socketFile) throws IOException {
+            return AFUNIXSocket.connectTo(new AFUNIXSocketAddress(socketFile));
+        }
+
+        private static ServerSocket bind(File socketFile) throws IOException {
+            return AFUNIXServerSocket.bindOn(new AFUNIXSocketAddress(socketFile));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.rowland.jinix.io;
+
+import org.rowland.jinix.naming.FileChangeEvent;
+import org.rowland.jinix.naming.FileChangeListener;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Change listener registry for a FileNameSpace. A FileNameSpace implements FileNameSpace.addChangeListener() and
+ * removeChangeListener() by delegating to an instance of this class, and calls fire() when it creates, modifies or
+ * deletes a file. Events are delivered to the listeners on the parent directory of the file on a dispatcher thread,
+ * so that a slow listener does not delay the file operation.
+ */
+public class FileChangeNotifier {
+
+    private final Map<String, List<FileChangeListener>> listeners = new HashMap<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "FileChangeNotifier");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public synchronized void addListener(String directoryPathName, FileChangeListener listener) {
+        listeners.computeIfAbsent(normalize(directoryPathName), k -> new ArrayList<>(2)).add(listener);
+    }
+
+    public synchronized void removeListener(String directoryPathName, FileChangeListener listener) {
+        String directory = normalize(directoryPathName);
+        List<FileChangeListener> l = listeners.get(directory);
+        if (l != null) {
+            l.remove(listener);
+            if (l.isEmpty()) {
+                listeners.remove(directory);
+            }
+        }
+    }
+
+    /**
+     * Notify the listeners on the parent directory of a file.
+     *
+     * @param kind the kind of change
+     * @param filePathName the path of the file within the FileNameSpace
+     */
+    public void fire(FileChangeEvent.Kind kind, String filePathName) {
+        int i = filePathName.lastIndexOf('/');
+        String directory = (i > 0 ? filePathName.substring(0, i) : "/");
+        List<FileChangeListener> directoryListeners;
+        synchronized (this) {
+            List<FileChangeListener> l = listeners.get(directory);
+            if (l == null) {
+                return;
+            }
+            directoryListeners = new ArrayList<>(l);
+        }
+        FileChangeEvent[] events = new FileChangeEvent[] {new FileChangeEvent(kind, filePathName)};
+        dispatcher.execute(() -> {
+            for (FileChangeListener listener : directoryListeners) {
+                try {
+                    listener.filesChanged(events);
+                } catch (RemoteException e) {
+                    removeListener(directory, listener);
+                }
+            }
+        });
+    }
+
+    private static String normalize(String directoryPathName) {
+        if (directoryPathName.length() > 1 && directoryPathName.endsWith("/")) {
+            return directoryPathName.substring(0, directoryPathName.length() - 1);
+        }
+        return directoryPathName;
+    }
+}
@@ -0,0 +1,106 @@
+package org.rowland.jinix.io;
+
+import org.rowland.jinix.naming.RemoteFileAccessor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An out of band data channel for a RemoteFileAccessor. Large reads and writes are sent through the data channel as
+ * raw bytes, avoiding the serialization and copies of an RMI call, while RMI remains the control plane for everything
+ * else. Data channels read and write at the current file position, the same as RemoteFileAccessor read() and write().
+ *
+ * Two transports are negotiated, in order of preference. A shared memory buffer in /dev/shm, with a small RMI call as
+ * the doorbell, and an AF_UNIX stream. If the server supports neither, no data channel is used.
+ */
+public abstract class FileDataChannel {
+
+    /**
+     * Reads and writes of at least this many bytes use the data channel when one is available.
+     */
+    public static final int THRESHOLD = 64 * 1024;
+
+    /**
+     * The size of the shared memory buffer requested from the server.
+     */
+    static final int SHARED_MEMORY_CAPACITY = 1024 * 1024;
+
+    /**
+     * Negotiate a data channel with the server that exports an accessor.
+     *
+     * @param accessor the RemoteFileAccessor
+     * @return the data channel, or null if no transport could be set up
+     */
+    static FileDataChannel negotiate(RemoteFileAccessor accessor) {
+        if (SharedMemoryBuffer.isAvailable()) {
+            try {
+                String shmPath = accessor.openSharedMemory(SHARED_MEMORY_CAPACITY);
+                if (shmPath != null) {
+                    return new SharedMemoryFileDataChannel(accessor, SharedMemoryBuffer.open(shmPath));
+                }
+            } catch (IOException | RuntimeException e) {
+                // Fall through and try AF_UNIX
+            }
+        }
+        if (AFUNIXSupport.isAvailable()) {
+            try {
+                String socketPath = accessor.openDataChannel();
+                if (socketPath != null) {
+                    return AFUNIXFileDataChannel.connect(socketPath);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Fall back to RMI
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read up to len bytes at the current file position.
+     *
+     * @return the bytes read, or null at end of file
+     */
+    public abstract byte[] read(int pgid, int len) throws IOException;
+
+    /**
+     * Write len bytes from b at the current file position.
+     *
+     * @return the number of bytes written
+     */
+    public abstract int write(int pgid, byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Read up to dst.remaining() bytes at the current file position into a buffer. The default implementation reads
+     * into a byte[] and copies it.
+     *
+     * @return the number of bytes read, or -1 at end of file
+     */
+    public int read(int pgid, ByteBuffer dst) throws IOException {
+        byte[] b = read(pgid, dst.remaining());
+        if (b == null) {
+            return -1;
+        }
+        dst.put(b);
+        return b.length;
+    }
+
+    /**
+     * Write the remaining bytes of a buffer at the current file position. The default implementation copies the
+     * bytes into a byte[], unless the buffer is backed by an accessible array.
+     *
+     * @return the number of bytes written
+     */
+    public int write(int pgid, ByteBuffer src) throws IOException {
+        int len = src.remaining();
+        if (src.hasArray()) {
+            int n = write(pgid, src.array(), src.arrayOffset() + src.position(), len);
+            src.position(src.position() + n);
+            return n;
+        }
+        byte[] b = new byte[len];
+        src.get(b);
+        return write(pgid, b, 0, len);
+    }
+
+    public abstract void close();
+}
@@ -0,0 +1,162 @@
+package org.rowland.jinix.io;
+
+import org.rowland.jinix.naming.RemoteFileAccessor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server end of an out of band data channel for a RemoteFileAccessor. A file server implements
+ * RemoteFileAccessor.openDataChannel() by calling open() with the accessor, and returns the socket path to the
+ * client. A daemon thread accepts a single connection on the socket, removes the socket file, and services read and
+ * write requests by calling the accessor locally. See AFUNIXFileDataChannel for the protocol.
+ */
+public class FileDataChannelServer implements Runnable {
+
+    private static final Logger logger = Logger.getLogger("jinix.io");
+
+    private final RemoteFileAccessor accessor;
+    private final File socketFile;
+    private final ServerSocket serverSocket;
+    private volatile Socket socket;
+
+    private FileDataChannelServer(RemoteFileAccessor accessor, File socketFile) throws IOException {
+        this.accessor = accessor;
+        this.socketFile = socketFile;
+        this.serverSocket = AFUNIXSupport.bind(socketFile);
+    }
+
+    /**
+     * Open a data channel for an accessor.
+     *
+     * @param accessor the local RemoteFileAccessor implementation that will service requests
+     * @return the data channel, or null if AF_UNIX sockets are not available in this server
+     * @throws IOException if the socket cannot be created
+     */
+    public static FileDataChannelServer open(RemoteFileAccessor accessor) throws IOException {
+        if (!AFUNIXSupport.isAvailable()) {
+            return null;
+        }
+        File socketDirectory = Files.createTempDirectory("jinix-data").toFile();
+        socketDirectory.deleteOnExit();
+        FileDataChannelServer server = new FileDataChannelServer(accessor,
+                new File(socketDirectory, UUID.randomUUID().toString()));
+        Thread t = new Thread(server, "FileDataChannel " + server.socketFile.getName());
+        t.setDaemon(true);
+        t.start();
+        return server;
+    }
+
+    /**
+     * @return the host path of the socket for the client to connect to
+     */
+    public String getSocketPath() {
+        return socketFile.getAbsolutePath();
+    }
+
+    @Override
+    public void run() {
+        try {
+            try {
+                socket = serverSocket.accept();
+            } finally {
+                serverSocket.close();
+                socketFile.delete();
+                socketFile.getParentFile().delete();
+            }
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break; // Client closed the channel
+                }
+                int pgid = in.readInt();
+                int len = in.readInt();
+                if (len < 0 || len > AFUNIXFileDataChannel.MAX_TRANSFER) {
+                    throw new IOException("Invalid data channel request length: " + len); // Closes the channel
+                }
+                switch (op) {
+                    case AFUNIXFileDataChannel.OP_READ:
+                        serviceRead(out, pgid, len);
+                        break;
+                    case AFUNIXFileDataChannel.OP_WRITE:
+                        byte[] b = new byte[len];
+                        in.readFully(b);
+                        serviceWrite(out, pgid, b);
+                        break;
+                    default:
+                        throw new IOException("Invalid data channel operation: " + op);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (socket != null && !socket.isClosed()) {
+                logger.log(Level.FINE, "FileDataChannel failure", e);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void serviceRead(DataOutputStream out, int pgid, int len) throws IOException {
+        byte[] b;
+        try {
+            b = accessor.read(pgid, len);
+        } catch (RuntimeException | IOException e) {
+            writeError(out, e);
+            return;
+        }
+        if (b == null) {
+            out.writeInt(AFUNIXFileDataChannel.EOF);
+            return;
+        }
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private void serviceWrite(DataOutputStream out, int pgid, byte[] b) throws IOException {
+        int count;
+        try {
+            count = accessor.write(pgid, b);
+        } catch (RuntimeException | IOException e) {
+            writeError(out, e);
+            return;
+        }
+        out.writeInt(count);
+    }
+
+    private void writeError(DataOutputStream out, Exception e) throws IOException {
+        out.writeInt(AFUNIXFileDataChannel.ERROR);
+        out.writeUTF(e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : ""));
+    }
+
+    /**
+     * Close the data channel. Called when the accessor is closed.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // Ignore
+        }
+        socketFile.delete();
+        socketFile.getParentFile().delete();
+    }
+}
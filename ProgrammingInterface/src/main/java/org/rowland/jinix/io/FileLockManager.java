@@ -0,0 +1,161 @@
+package org.rowland.jinix.io;
+
+import org.rowland.jinix.JinixKernelUnicastRemoteObject;
+import org.rowland.jinix.proc.EventData;
+import org.rowland.jinix.proc.EventNotificationHandler;
+import org.rowland.jinix.proc.ProcessManager;
+
+import java.io.IOException;
+import java.nio.channels.FileLockInterruptionException;
+import java.nio.channels.OverlappingFileLockException;
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Byte range lock manager for a FileNameSpace. A FileNameSpace implements FileNameSpace.lock() and unlock() by
+ * delegating to an instance of this class. Locks are owned by processes. Any number of processes may hold
+ * overlapping shared locks, while an exclusive lock excludes every other process from its range. Call
+ * registerForProcessDeregistration() so that the locks of a process are released when it terminates. A process waiting
+ * for a lock gives up after jinix.io.lockWaitTimeout milliseconds (default 600000), so that the server thread that
+ * runs the wait is not held forever by a waiter that has gone away. 0 waits without a limit.
+ */
+public class FileLockManager {
+
+    private static final long LOCK_WAIT_TIMEOUT = Long.getLong("jinix.io.lockWaitTimeout", 600000);
+
+    private final Map<String, List<Range>> locks = new HashMap<>();
+
+    private static class Range {
+        private final int pid;
+        private final long position;
+        private final long size;
+        private final boolean shared;
+
+        private Range(int pid, long position, long size, boolean shared) {
+            this.pid = pid;
+            this.position = position;
+            this.size = size;
+            this.shared = shared;
+        }
+
+        private boolean overlaps(long position, long size) {
+            if (end(position, size) <= this.position)
+                return false;
+            if (end(this.position, this.size) <= position)
+                return false;
+            return true;
+        }
+
+        private static long end(long position, long size) {
+            long end = position + size;
+            return (end < 0 ? Long.MAX_VALUE : end); // lock() with no arguments locks to Long.MAX_VALUE
+        }
+    }
+
+    public synchronized boolean lock(int pid, String filePathName, long position, long size, boolean shared,
+                                     boolean wait) throws IOException {
+        List<Range> fileLocks = locks.computeIfAbsent(filePathName, k -> new LinkedList<>());
+
+        for (Range r : fileLocks) {
+            if (r.pid == pid && r.overlaps(position, size)) {
+                throw new OverlappingFileLockException();
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + LOCK_WAIT_TIMEOUT;
+        while (isBlocked(fileLocks, pid, position, size, shared)) {
+            if (!wait) {
+                return false;
+            }
+            try {
+                if (LOCK_WAIT_TIMEOUT <= 0) {
+                    wait();
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new IOException("Timed out waiting for lock on: " + filePathName);
+                    }
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                throw new FileLockInterruptionException();
+            }
+            // The list may have been removed while waiting if every lock on the file was released.
+            fileLocks = locks.computeIfAbsent(filePathName, k -> new LinkedList<>());
+        }
+
+        fileLocks.add(new Range(pid, position, size, shared));
+        return true;
+    }
+
+    public synchronized void unlock(int pid, String filePathName, long position, long size) {
+        List<Range> fileLocks = locks.get(filePathName);
+        if (fileLocks == null) {
+            return;
+        }
+        Iterator<Range> i = fileLocks.iterator();
+        while (i.hasNext()) {
+            Range r = i.next();
+            if (r.pid == pid && r.position == position && r.size == size) {
+                i.remove();
+                break;
+            }
+        }
+        if (fileLocks.isEmpty()) {
+            locks.remove(filePathName);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Release every lock held by a process.
+     *
+     * @param pid the process id
+     */
+    public synchronized void releaseAll(int pid) {
+        Iterator<List<Range>> i = locks.values().iterator();
+        while (i.hasNext()) {
+            List<Range> fileLocks = i.next();
+            fileLocks.removeIf(r -> r.pid == pid);
+            if (fileLocks.isEmpty()) {
+                i.remove();
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Register with the ProcessManager to release the locks held by any process that deregisters.
+     *
+     * @param pm the ProcessManager
+     * @throws RemoteException
+     */
+    public void registerForProcessDeregistration(ProcessManager pm) throws RemoteException {
+        pm.registerGlobalEventNotificationHandler(ProcessManager.EventName.DEREGISTER, new DeregisterEventHandler());
+    }
+
+    private boolean isBlocked(List<Range> fileLocks, int pid, long position, long size, boolean shared) {
+        for (Range r : fileLocks) {
+            if (r.pid != pid && r.overlaps(position, size) && (!shared || !r.shared)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class DeregisterEventHandler extends JinixKernelUnicastRemoteObject implements EventNotificationHandler {
+
+        private DeregisterEventHandler() throws RemoteException {
+            super();
+        }
+
+        @Override
+        public void handleEventNotification(ProcessManager.EventName event, Object eventData) {
+            releaseAll(((EventData) eventData).pid);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.rowland.jinix.io;
 
 import org.rowland.jinix.lang.JinixRuntime;
 import org.rowland.jinix.naming.*;
+import org.rowland.jinix.nio.JinixAttributeCache;
 import org.rowland.jinix.nio.JinixFileAttributes;
 import org.rowland.jinixspi.JinixFileSP;
 
@@ -18,6 +19,9 @@ public class JinixFile implements JinixFileSP {
 
     private String path;
 
+    // attributes prefetched when the file was returned by listFiles() (may be null)
+    private JinixAttributeCache.Entry prefetchedAttributes;
+
     public JinixFile(String pathname) {
         if (pathname == null) {
             this.path = "";
@@ -204,59 +208,40 @@ public class JinixFile implements JinixFileSP {
     }
 
     public boolean exists() throws InvalidPathException {
-        Object lookup = JinixRuntime.getRuntime().lookup(getCanonicalPath());
-        return (lookup != null);
+        return JinixRuntime.getRuntime().exists(getCanonicalPath());
     }
 
-    public boolean isDirectory() {
+    private JinixAttributeCache.Entry getAttributesEntry() {
+        JinixAttributeCache.Entry e = prefetchedAttributes;
+        if (e != null && e.isLive()) {
+            return e;
+        }
+        prefetchedAttributes = null;
+        return JinixAttributeCache.get(getCanonicalPath());
+    }
 
-        try {
-            Object lookup = JinixRuntime.getRuntime().lookup(getCanonicalPath());
-            if (lookup instanceof RemoteFileHandle) {
-                return new JinixFileAttributes(
-                        ((RemoteFileHandle) lookup).getAttributes()).isDirectory();
-            }
-            if (lookup instanceof FileNameSpace) {
-                try {
-                    return new JinixFileAttributes(
-                            ((FileNameSpace) lookup).getParent().getFileAttributes(((FileNameSpace) lookup).getPathWithinParent()))
-                            .isDirectory();
-                } catch (RemoteException e) {
-                    e.printStackTrace();
-                }
-            }
-            return false; // Anything other than a file is not a directory
-        } catch (NoSuchFileException e) {
-            return false;
+    public boolean isDirectory() {
+        JinixAttributeCache.Entry e = getAttributesEntry();
+        if (e != null && e.attributes != null) {
+            return new JinixFileAttributes(e.attributes).isDirectory();
         }
+        return false; // Anything other than a file is not a directory
     }
 
     public boolean isFile() {
-
-        try {
-            Object lookup = JinixRuntime.getRuntime().lookup(getCanonicalPath());
-            if (lookup instanceof RemoteFileHandle) {
-                return new JinixFileAttributes(
-                        ((RemoteFileHandle) lookup).getAttributes()).isRegularFile();
-            }
-            return false;
-        } catch (NoSuchFileException e) {
-            return false;
+        JinixAttributeCache.Entry e = getAttributesEntry();
+        if (e != null && e.kind == JinixAttributeCache.Kind.FILE_HANDLE) {
+            return new JinixFileAttributes(e.attributes).isRegularFile();
         }
+        return false;
     }
 
     public long lastModified() {
-
-        try {
-            Object lookup = JinixRuntime.getRuntime().lookup(getCanonicalPath());
-            if (lookup instanceof RemoteFileHandle) {
-                return new JinixFileAttributes(
-                        ((RemoteFileHandle) lookup).getAttributes()).lastModifiedTime().toMillis();
-            }
-            return 0;
-        } catch (ClassCastException | NoSuchFileException e) {
-            return 0L;
+        JinixAttributeCache.Entry e = getAttributesEntry();
+        if (e != null && e.kind == JinixAttributeCache.Kind.FILE_HANDLE) {
+            return new JinixFileAttributes(e.attributes).lastModifiedTime().toMillis();
         }
+        return 0L;
     }
 
     public boolean setLastModified(long time) {
@@ -269,6 +254,8 @@ public class JinixFile implements JinixFileSP {
             Object lookup = JinixRuntime.getRuntime().lookup(getCanonicalPath());
             if (lookup instanceof RemoteFileHandle) {
                 ((RemoteFileHandle) lookup).setAttributes(dfd);
+                JinixAttributeCache.invalidate(getCanonicalPath());
+                prefetchedAttributes = null;
             }
             return true; // For anything other than a file just pretend the value was set
         } catch (NoSuchFileException e) {
@@ -277,17 +264,11 @@ public class JinixFile implements JinixFileSP {
     }
 
     public long length() {
-
-        try {
-            Object lookup = JinixRuntime.getRuntime().lookup(getCanonicalPath());
-            if (lookup instanceof RemoteFileHandle) {
-                return new JinixFileAttributes(
-                        ((RemoteFileHandle) lookup).getAttributes()).size();
-            }
-            return 0L;
-        } catch (NoSuchFileException e) {
-            return 0L;
+        JinixAttributeCache.Entry e = getAttributesEntry();
+        if (e != null && e.kind == JinixAttributeCache.Kind.FILE_HANDLE) {
+            return new JinixFileAttributes(e.attributes).size();
         }
+        return 0L;
     }
 
     public boolean delete() {
@@ -295,6 +276,8 @@ public class JinixFile implements JinixFileSP {
             Object lookup = JinixRuntime.getRuntime().lookup(getCanonicalPath());
             if (lookup instanceof RemoteFileHandle) {
                 ((RemoteFileHandle) lookup).getParent().delete(((RemoteFileHandle) lookup).getPath());
+                JinixAttributeCache.invalidate(getCanonicalPath());
+                prefetchedAttributes = null;
                 return true;
             }
             return false;
@@ -321,13 +304,13 @@ public class JinixFile implements JinixFileSP {
 
         try {
             Object lookup = JinixRuntime.getRuntime().lookup(getCanonicalPath());
-            String[] dirData = null;
+            DirectoryFileData[] dirData = null;
             if (lookup instanceof RemoteFileHandle) {
                 dirData = ((RemoteFileHandle) lookup).getParent()
-                        .list(((RemoteFileHandle) lookup).getPath());
+                        .listWithAttributes(((RemoteFileHandle) lookup).getPath());
             }
             if (lookup instanceof FileNameSpace) {
-                ((FileNameSpace) lookup).list("/");
+                dirData = ((FileNameSpace) lookup).listWithAttributes("/");
             }
 
             if (dirData == null) {
@@ -336,7 +319,8 @@ public class JinixFile implements JinixFileSP {
 
             JinixFile[] rtrnJinixFile = new JinixFile[dirData.length];
             for (int i=0; i<dirData.length; i++) {
-                JinixFile jf = new JinixFile(this, dirData[i]);
+                JinixFile jf = new JinixFile(this, dirData[i].name);
+                jf.prefetchedAttributes = JinixAttributeCache.prefetched(dirData[i]);
                 rtrnJinixFile[i] = jf;
             }
             return rtrnJinixFile;
@@ -355,6 +339,8 @@ public class JinixFile implements JinixFileSP {
             testPath = testPath.substring(0, testPath.lastIndexOf('/'));
             Object lookup = JinixRuntime.getRuntime().lookup(testPath);
             if (lookup instanceof RemoteFileHandle) {
+                JinixAttributeCache.invalidate(getCanonicalPath());
+                prefetchedAttributes = null;
                 return ((RemoteFileHandle) lookup).getParent().
                         createFileAtomically(((RemoteFileHandle) lookup).getPath(), getName());
             }
@@ -373,6 +359,8 @@ public class JinixFile implements JinixFileSP {
             testPath = testPath.substring(0, testPath.lastIndexOf('/'));
             Object lookup = JinixRuntime.getRuntime().lookup(testPath);
             if (lookup instanceof RemoteFileHandle) {
+                JinixAttributeCache.invalidate(getCanonicalPath());
+                prefetchedAttributes = null;
                 return ((RemoteFileHandle) lookup).getParent().
                         createDirectory(((RemoteFileHandle) lookup).getPath(), getName());
             }
@@ -400,6 +388,8 @@ public class JinixFile implements JinixFileSP {
             }
 
             if (lookup instanceof RemoteFileHandle) {
+                JinixAttributeCache.invalidateTree(testPath);
+                prefetchedAttributes = null;
                 newDirectoryNames = newDirectoryNames.substring(1) + "/";
                 String newDirectoryName = newDirectoryNames.substring(0, newDirectoryNames.indexOf('/'));
                 while (newDirectoryName != null && !newDirectoryName.isEmpty()) {
@@ -441,6 +431,9 @@ public class JinixFile implements JinixFileSP {
 
             ((RemoteFileHandle) srcLookup).getParent().
                     move((RemoteFileHandle) srcLookup, (RemoteFileHandle) destLookup, newFileName);
+            JinixAttributeCache.invalidateTree(getCanonicalPath());
+            prefetchedAttributes = null;
+            JinixAttributeCache.invalidateTree(dest.getCanonicalPath());
             return true;
         } catch (NoSuchFileException | FileAlreadyExistsException e) {
             return false;
@@ -1,9 +1,11 @@
 package org.rowland.jinix.io;
 
 import org.rowland.jinix.naming.RemoteFileAccessor;
+import org.rowland.jinix.nio.JinixAttributeCache;
 
 import java.io.Closeable;
 import java.io.FileDescriptor;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.SyncFailedException;
 import java.rmi.NoSuchObjectException;
@@ -22,6 +24,11 @@ public class JinixFileDescriptor extends FileDescriptor {
     private RemoteFileAccessor handle;
     private Closeable parent;
     private List<Closeable> otherParents;
+    private List<Flushable> writeBehindStreams;
+    private List<JinixFileInputStream> readAheadStreams;
+    private FileDataChannel dataChannel;
+    private boolean dataChannelNegotiated;
+    private volatile String attributeCacheKey;
     private boolean closed;
 
     public JinixFileDescriptor(RemoteFileAccessor streamHandle) {
@@ -38,6 +45,13 @@ public class JinixFileDescriptor extends FileDescriptor {
     }
 
     public void sync() throws SyncFailedException {
+        try {
+            flushPendingWrites();
+        } catch (IOException e) {
+            SyncFailedException sfe = new SyncFailedException("Failure sending buffered writes");
+            sfe.initCause(e);
+            throw sfe;
+        }
         try {
             if (handle != null) {
                 handle.force(false);
@@ -47,6 +61,115 @@ public class JinixFileDescriptor extends FileDescriptor {
         }
     }
 
+    /**
+     * Register a stream that holds written bytes in a write behind buffer. The buffer is flushed before this file
+     * descriptor is synced or closed.
+     *
+     * @param f the stream with a write behind buffer
+     */
+    synchronized void registerWriteBehind(Flushable f) {
+        if (writeBehindStreams == null) {
+            writeBehindStreams = new ArrayList<>(2);
+        }
+        if (!writeBehindStreams.contains(f)) {
+            writeBehindStreams.add(f);
+        }
+    }
+
+    /**
+     * Send any bytes held in the write behind buffers of streams using this file descriptor to the server. This
+     * does not sync the bytes to storage. Call before handing the file descriptor to another process so that the
+     * other process cannot write ahead of bytes that this process has already written.
+     *
+     * @throws IOException
+     */
+    public void flushPendingWrites() throws IOException {
+        Flushable[] streams;
+        synchronized (this) {
+            if (writeBehindStreams == null) {
+                return;
+            }
+            streams = writeBehindStreams.toArray(new Flushable[writeBehindStreams.size()]);
+        }
+        for (Flushable f : streams) {
+            f.flush();
+        }
+    }
+
+    /**
+     * Register a stream that reads ahead of its caller. The read ahead buffer is returned before this file descriptor
+     * is handed to another process.
+     *
+     * @param s the stream with a read ahead buffer
+     */
+    synchronized void registerReadAhead(JinixFileInputStream s) {
+        if (readAheadStreams == null) {
+            readAheadStreams = new ArrayList<>(1);
+        }
+        if (!readAheadStreams.contains(s)) {
+            readAheadStreams.add(s);
+        }
+    }
+
+    /**
+     * Give the bytes held in the read ahead buffers of streams using this file descriptor back to the server, and
+     * stop those streams reading ahead. Call before handing the file descriptor to another process so that the
+     * other process reads the bytes that this process has not yet consumed. Bytes already read from a file that
+     * cannot seek stay with this process.
+     *
+     * @throws IOException
+     */
+    public void returnReadAhead() throws IOException {
+        JinixFileInputStream[] streams;
+        synchronized (this) {
+            if (readAheadStreams == null) {
+                return;
+            }
+            streams = readAheadStreams.toArray(new JinixFileInputStream[readAheadStreams.size()]);
+            readAheadStreams = null;
+        }
+        for (JinixFileInputStream s : streams) {
+            s.stopReadAhead();
+        }
+    }
+
+    /**
+     * Get the out of band data channel for large reads and writes. The data channel is negotiated with the server the
+     * first time it is requested.
+     *
+     * @return the data channel, or null if the server or this process does not support data channels
+     */
+    public synchronized FileDataChannel getDataChannel() {
+        if (!dataChannelNegotiated) {
+            dataChannelNegotiated = true;
+            if (handle != null) {
+                dataChannel = FileDataChannel.negotiate(handle);
+            }
+        }
+        return dataChannel;
+    }
+
+    /**
+     * Set the absolute path of the file opened by this file descriptor, so that writes through the file descriptor
+     * invalidate the file's entry in the JinixAttributeCache.
+     *
+     * @param path an absolute normalized path
+     */
+    public void setAttributeCacheKey(String path) {
+        attributeCacheKey = path;
+    }
+
+    /**
+     * Called after a write or truncate through this file descriptor changes the size or modification time of the
+     * file.
+     */
+    public void attributesChanged() {
+        String key = attributeCacheKey;
+        if (key != null) {
+            JinixAttributeCache.invalidate(key);
+        }
+    }
+
     synchronized void attach(Closeable c) {
         if (parent == null) {
             // first caller gets to do this
@@ -100,23 +223,52 @@ public class JinixFileDescriptor extends FileDescriptor {
         }
     }
 
+    /**
+     * Close the file descriptor. The RemoteFileAccessor is closed, and the file descriptor removed from
+     * openFileDescriptors, even if the buffered writes cannot be sent. A flush failure is thrown once the file
+     * descriptor is closed, with any close failure added to it as a suppressed exception.
+     */
     public void close() {
         if (!closed) {
+            RuntimeException failure = null;
+            try {
+                flushPendingWrites();
+            } catch (IOException | RuntimeException e) {
+                failure = new RuntimeException("Error flushing buffered writes closing file descriptor", e);
+            }
             try {
+                synchronized (this) {
+                    if (dataChannel != null) {
+                        dataChannel.close();
+                        dataChannel = null;
+                    }
+                }
                 if (handle != null) {
                     try {
                         handle.close();
                     } catch (NoSuchObjectException e) {
                         // Ignore for now. This should never happen, but still does.
                     }
+                }
+            } catch (RemoteException | RuntimeException e) {
+                RuntimeException closeFailure = new RuntimeException("Error closing file descriptor", e);
+                if (failure == null) {
+                    failure = closeFailure;
+                } else {
+                    failure.addSuppressed(closeFailure);
+                }
+            } finally {
+                if (handle != null) {
                     synchronized (openFileDescriptors) {
                         openFileDescriptors.remove(this);
                     }
                 }
-            } catch (RemoteException e) {
-                throw new RuntimeException("Error closing file descriptor", e);
+                attributesChanged();
+                closed = true;
+            }
+            if (failure != null) {
+                throw failure;
             }
-            closed = true;
         }
     }
 
@@ -130,6 +282,10 @@ public class JinixFileDescriptor extends FileDescriptor {
             cloned.handle.duplicate();
             cloned.parent = null;
             cloned.otherParents = null;
+            cloned.writeBehindStreams = null;
+            cloned.readAheadStreams = null;
+            cloned.dataChannel = null;
+            cloned.dataChannelNegotiated = false;
             synchronized (openFileDescriptors) {
                 openFileDescriptors.add(cloned);
             }
@@ -2,6 +2,7 @@ package org.rowland.jinix.io;
 
 import org.rowland.jinix.lang.JinixRuntime;
 import org.rowland.jinix.naming.FileNameSpace;
+import org.rowland.jinix.naming.RemoteFileAccessor;
 import org.rowland.jinix.naming.RemoteFileHandle;
 import org.rowland.jinix.nio.JinixFileChannel;
 import org.rowland.jinix.terminal.TerminalBlockedOperationException;
@@ -23,14 +24,31 @@ import java.util.Set;
 
 /**
  * Created by rsmith on 11/26/2016.
+ *
+ * Reads are served from a read ahead buffer so that single byte reads do not each cost a round trip to the server.
+ * The size of the chunk requested from the server grows while the file is read sequentially. Only streams that open
+ * their own file read ahead. A stream on a file descriptor it was given, such as stdin, may share the file with
+ * other processes, and bytes it read ahead would be lost to them.
  */
 public class JinixFileInputStream extends JinixFileInputStreamSP {
 
     private static final Set<? extends OpenOption> inputStreamOpenOptionSet = Collections.unmodifiableSet(EnumSet.of(StandardOpenOption.READ));
 
+    private static final int READ_AHEAD_MIN = 8 * 1024;
+    private static final int READ_AHEAD_MAX = 1024 * 1024;
+    private static final long HIGH_LATENCY_NANOS = 1000000L;
+
     private final JinixFileDescriptor fd;
     private JinixFileChannel channel;
 
+    // Read ahead buffer. Bytes between bufferPos and bufferLimit have been read from the server, but not returned.
+    private byte[] buffer;
+    private int bufferPos;
+    private int bufferLimit;
+    private int chunkSize = READ_AHEAD_MIN;
+    private long roundTripNanos;
+    private boolean readAhead = false;
+
     public JinixFileInputStream(JinixFile file) throws FileNotFoundException {
         try {
             int pid = JinixRuntime.getRuntime().getPid();
@@ -39,12 +57,14 @@ public class JinixFileInputStream extends JinixFileInputStreamSP {
                 fd = new JinixFileDescriptor(((RemoteFileHandle) lookup).getParent().
                         getRemoteFileAccessor(pid, ((RemoteFileHandle) lookup).getPath(), inputStreamOpenOptionSet));
                 fd.attach(this);
+                enableReadAhead();
                 return;
             }
             // A translator that presents as a file will be an instance of a FileNameSpace.
             if (lookup instanceof FileNameSpace) {
                 fd = new JinixFileDescriptor(((FileNameSpace) lookup).getRemoteFileAccessor(pid, "", inputStreamOpenOptionSet));
                 fd.attach(this);
+                enableReadAhead();
                 return;
             }
             throw new FileNotFoundException(file.getAbsolutePath());
@@ -62,12 +82,18 @@ public class JinixFileInputStream extends JinixFileInputStreamSP {
         fd.attach(this);
     }
 
+    private void enableReadAhead() {
+        readAhead = true;
+        fd.registerReadAhead(this);
+    }
+
     public final JinixFileDescriptor getFD() {
         return fd;
     }
 
     public synchronized JinixFileChannel getChannel() {
         try {
+            returnReadAhead();
             if (channel == null) {
                 channel = JinixFileChannel.open(fd, inputStreamOpenOptionSet, this);
             }
@@ -78,35 +104,21 @@ public class JinixFileInputStream extends JinixFileInputStreamSP {
     }
 
     @Override
-    public int read() throws IOException {
-        try {
-            byte[] b = fd.getHandle().read(JinixRuntime.getRuntime().getProcessGroupId(), 1);
-            if (b != null && b.length == 1) {
-                return b[0] & 0xff;  // This is the only way to convert a byte to an int with negative numbers for values over 128
-            } else {
+    public synchronized int read() throws IOException {
+        if (bufferPos >= bufferLimit) {
+            if (!readAhead) {
+                byte[] rb = remoteRead(1);
+                return (rb == null || rb.length == 0 ? -1 : rb[0] & 0xff);
+            }
+            if (fill() < 0) {
                 return -1;
             }
-        } catch (NonReadableChannelException e) {
-            throw new IOException("Illegal attempt to read from a non-readable file descriptor");
-        } catch (NoSuchObjectException e) {
-            throw new IOException("JinixFileInputStream: RemoteFileAccessor has been deleted");
-        } catch (TerminalBlockedOperationException e) {
-            /**
-            synchronized (JinixFileDescriptor.blockedTerminalOperationSynchronizationObject) {
-                try {
-                    JinixFileDescriptor.blockedTerminalOperationSynchronizationObject.wait();
-                } catch (InterruptedException e1) {
-                    return -1; // Should not happen, but not sure what to do here.
-                }
-            } */
-            return read();
-        } catch (RemoteException e) {
-            throw new IOException("JinixFileInputStream: Jinix server failure", e.getCause());
         }
+        return buffer[bufferPos++] & 0xff;  // This is the only way to convert a byte to an int with negative numbers for values over 128
     }
 
     @Override
-    public int read(byte[] b, int off, int len) throws IOException {
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
 
         if (b == null) {
             throw new NullPointerException();
@@ -116,15 +128,96 @@ public class JinixFileInputStream extends JinixFileInputStreamSP {
             return 0;
         }
 
-        try {
-            byte[] rb = fd.getHandle().read(JinixRuntime.getRuntime().getProcessGroupId(), len);
+        int buffered = bufferLimit - bufferPos;
+        if (buffered > 0) {
+            // Never go back to the server when we already have bytes to return. The server read may block on
+            // a pipe or terminal, and the caller will loop if it needs more.
+            int n = Math.min(buffered, len);
+            System.arraycopy(buffer, bufferPos, b, off, n);
+            bufferPos += n;
+            return n;
+        }
 
+        if (!readAhead || len >= chunkSize) {
+            // Large reads go straight into the callers array. There is nothing to gain by staging them.
+            byte[] rb = remoteRead(len);
             if (rb == null) {
                 return -1;
             }
-
             System.arraycopy(rb, 0, b, off, rb.length);
             return rb.length;
+        }
+
+        if (fill() < 0) {
+            return -1;
+        }
+        int n = Math.min(bufferLimit - bufferPos, len);
+        System.arraycopy(buffer, bufferPos, b, off, n);
+        bufferPos += n;
+        return n;
+    }
+
+    @Override
+    public synchronized long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        int buffered = bufferLimit - bufferPos;
+        if (n <= buffered) {
+            bufferPos += (int) n;
+            return n;
+        }
+        bufferPos = bufferLimit;
+        chunkSize = READ_AHEAD_MIN; // A skip breaks the sequential pattern
+        return buffered + fd.getHandle().skip(n - buffered);
+    }
+
+    @Override
+    public synchronized int available() throws IOException {
+        return (bufferLimit - bufferPos) + fd.getHandle().available();
+    }
+
+    /**
+     * Replace the read ahead buffer with the next chunk from the server.
+     *
+     * @return the number of bytes now buffered, which is never 0, or -1 at end of file
+     * @throws IOException
+     */
+    private int fill() throws IOException {
+        bufferPos = 0;
+        bufferLimit = 0;
+        byte[] rb = remoteRead(chunkSize);
+        if (rb == null || rb.length == 0) {
+            return -1; // Some servers return an empty array rather than null at end of file
+        }
+        // The array returned from RMI is already a private copy, so it becomes the buffer without another copy.
+        buffer = rb;
+        bufferLimit = rb.length;
+        return bufferLimit;
+    }
+
+    /**
+     * Read up to len bytes from the RemoteFileAccessor, and adjust the read ahead chunk size. The chunk size doubles
+     * every time a read is satisfied in full, which only happens while a file is being read sequentially. When the
+     * measured round trip time is high, the chunk size grows twice as fast since each round trip is more expensive.
+     * A short read (end of file, a pipe or a terminal) drops the chunk size back to the minimum.
+     */
+    private byte[] remoteRead(int len) throws IOException {
+        try {
+            long start = System.nanoTime();
+            FileDataChannel dc = (len >= FileDataChannel.THRESHOLD ? fd.getDataChannel() : null);
+            byte[] rb = (dc != null ? dc.read(JinixRuntime.getRuntime().getProcessGroupId(), len) :
+                    fd.getHandle().read(JinixRuntime.getRuntime().getProcessGroupId(), len));
+            long elapsed = System.nanoTime() - start;
+            roundTripNanos = (roundTripNanos == 0 ? elapsed : (roundTripNanos * 7 + elapsed) / 8);
+
+            if (rb != null && rb.length == len) {
+                int growth = (roundTripNanos > HIGH_LATENCY_NANOS ? 4 : 2);
+                chunkSize = (int) Math.min((long) Math.max(chunkSize, len) * growth, READ_AHEAD_MAX);
+            } else {
+                chunkSize = READ_AHEAD_MIN;
+            }
+            return rb;
         } catch (NonReadableChannelException e) {
             throw new IOException("Illegal attempt to read from a non-readable file descriptor");
         } catch (NoSuchObjectException e) {
@@ -138,20 +231,39 @@ public class JinixFileInputStream extends JinixFileInputStreamSP {
                     return -1;
                 }
             } */
-            return read(b, off, len);
+            return remoteRead(len);
         } catch (RemoteException e) {
             throw new IOException("JinixFileInputStream: Jinix server failure", e.getCause());
         }
     }
 
-    @Override
-    public long skip(long n) throws IOException {
-        return fd.getHandle().skip(n);
+    /**
+     * Give any bytes in the read ahead buffer back to the RemoteFileAccessor by moving its file pointer back. This
+     * keeps the position of a FileChannel obtained from this stream consistent with what the stream has returned.
+     * Streams that cannot seek (pipes, terminals) just keep their buffer.
+     */
+    synchronized void returnReadAhead() throws IOException {
+        int buffered = bufferLimit - bufferPos;
+        if (buffered == 0) {
+            return;
+        }
+        try {
+            RemoteFileAccessor raf = fd.getHandle();
+            raf.seek(raf.getFilePointer() - buffered);
+            bufferPos = bufferLimit;
+            chunkSize = READ_AHEAD_MIN;
+        } catch (UnsupportedOperationException e) {
+            // Not seekable
+        }
     }
 
-    @Override
-    public int available() throws IOException {
-        return fd.getHandle().available();
+    /**
+     * Return the read ahead buffer and stop reading ahead. Called when the file descriptor is shared with another
+     * process.
+     */
+    synchronized void stopReadAhead() throws IOException {
+        returnReadAhead();
+        readAhead = false;
     }
 
     @Override
@@ -22,13 +22,22 @@ import java.util.Set;
 
 /**
  * Created by rsmith on 11/27/2016.
+ *
+ * Writes are collected in a write behind buffer and sent to the server in batches. flush() only pushes the buffered
+ * bytes to the server, it does not sync them to storage.
  */
 public class JinixFileOutputStream extends JinixFileOutputStreamSP {
 
+    private static final int WRITE_BEHIND_SIZE = 64 * 1024;
+
     JinixFileDescriptor fd;
     JinixFileChannel channel;
     Set<StandardOpenOption> options;
 
+    // Write behind buffer. Bytes are sent to the server when the buffer fills, or on flush() or close().
+    private byte[] buffer;
+    private int count;
+
     public JinixFileOutputStream(JinixFile file, boolean append) {
 
         try {
@@ -49,17 +58,23 @@ public class JinixFileOutputStream extends JinixFileOutputStreamSP {
                 if (lookup instanceof RemoteFileHandle) {
                     fd = new JinixFileDescriptor(((RemoteFileHandle) lookup).getParent().
                             getRemoteFileAccessor(pid, ((RemoteFileHandle) lookup).getPath() + "/" + fileName, options));
+                    fd.setAttributeCacheKey(file.getCanonicalPath());
+                    fd.attributesChanged();
                     return;
                 }
             } else {
                 if (lookup instanceof RemoteFileHandle) {
                     fd = new JinixFileDescriptor(((RemoteFileHandle) lookup).getParent().
                             getRemoteFileAccessor(pid, ((RemoteFileHandle) lookup).getPath(), options));
+                    fd.setAttributeCacheKey(file.getCanonicalPath());
+                    fd.attributesChanged();
                     return;
                 }
                 // A translator that presents as a file will be an instance of a FileNameSpace.
                 if (lookup instanceof FileNameSpace) {
                     fd = new JinixFileDescriptor(((FileNameSpace) lookup).getRemoteFileAccessor(pid, "", options));
+                    fd.setAttributeCacheKey(file.getCanonicalPath());
+                    fd.attributesChanged();
                     fd.attach(this);
                     return;
                 }
@@ -90,6 +105,7 @@ public class JinixFileOutputStream extends JinixFileOutputStreamSP {
 
     public synchronized JinixFileChannel getChannel() {
         try {
+            flushBuffer(); // Channel writes go directly to the server, so they must not pass buffered stream writes.
             if (channel == null) {
                 channel = JinixFileChannel.open(fd, options, this);
             }
@@ -100,48 +116,118 @@ public class JinixFileOutputStream extends JinixFileOutputStreamSP {
     }
 
     @Override
-    public void write(int b) throws IOException {
+    public synchronized void write(int b) throws IOException {
+        if (buffer == null) {
+            allocateBuffer();
+        } else if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
 
-        byte[] wb = new byte[] {(byte) b};
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return;
+        }
 
-        try {
-            fd.getHandle().write(JinixRuntime.getRuntime().getProcessGroupId(), wb);
-        } catch (NonWritableChannelException e) {
-            throw new IOException("Illegal attempt to write to a non-writable file descriptor");
-        } catch (NoSuchObjectException e) {
-            throw new IOException("JinixFileOutputStream: RemoteFileAccessor has been deleted");
-        } catch (TerminalBlockedOperationException e) {
-            write(b);
-        } catch (RemoteException e) {
-            throw new IOException("JinixFileOutputStream: Jinix server failure", e.getCause());
+        if (len >= WRITE_BEHIND_SIZE) {
+            // Nothing to gain by copying a large write into the buffer. Send what is pending, then send this directly.
+            flushBuffer();
+            byte[] wb;
+            if (off == 0 && b.length == len) {
+                wb = b;
+            } else {
+                wb = new byte[len];
+                System.arraycopy(b, off, wb, 0, len);
+            }
+            remoteWrite(wb);
+            return;
         }
-    }
 
+        if (buffer == null) {
+            allocateBuffer();
+        } else if (len > buffer.length - count) {
+            flushBuffer();
+        }
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
 
+    /**
+     * Send any buffered bytes to the server. flush() does not force the bytes to the storage device. Use
+     * getFD().sync() or getChannel().force() when durability is required.
+     *
+     * @throws IOException
+     */
     @Override
-    public void write(byte[] b, int off, int len) throws IOException {
-        byte[] wb = new byte[len];
-        System.arraycopy(b, off, wb, 0, len);
+    public synchronized void flush() throws IOException {
+        flushBuffer();
+    }
+
+    private void allocateBuffer() {
+        buffer = new byte[WRITE_BEHIND_SIZE];
+        fd.registerWriteBehind(this); // The file descriptor flushes us if it is synced or closed directly
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        byte[] wb;
+        if (count == buffer.length) {
+            wb = buffer;
+            buffer = new byte[WRITE_BEHIND_SIZE]; // RMI may still hold wb while marshalling, so never reuse it.
+        } else {
+            wb = new byte[count];
+            System.arraycopy(buffer, 0, wb, 0, count);
+        }
+        count = 0;
+        remoteWrite(wb);
+    }
+
+    private void remoteWrite(byte[] wb) throws IOException {
         try {
-            fd.getHandle().write(JinixRuntime.getRuntime().getProcessGroupId(), wb);
+            FileDataChannel dc = (wb.length >= FileDataChannel.THRESHOLD ? fd.getDataChannel() : null);
+            if (dc != null) {
+                dc.write(JinixRuntime.getRuntime().getProcessGroupId(), wb, 0, wb.length);
+            } else {
+                fd.getHandle().write(JinixRuntime.getRuntime().getProcessGroupId(), wb);
+            }
+            fd.attributesChanged();
         } catch (NonWritableChannelException e) {
             throw new IOException("Illegal attempt to write to a non-writable file descriptor");
         } catch (NoSuchObjectException e) {
             throw new IOException("JinixFileOutputStream: RemoteFileAccessor has been deleted");
         } catch (TerminalBlockedOperationException e) {
-            write(b, off, len);
+            remoteWrite(wb);
         } catch (RemoteException e) {
             throw new IOException("JinixFileOutputStream: Jinix server failure", e.getCause());
         }
     }
 
-    @Override
-    public void flush() throws IOException {
-        fd.getHandle().force(true);
-    }
-
     @Override
     public void close() throws IOException {
-        fd.close();
+        IOException flushFailure = null;
+        try {
+            flush();
+        } catch (IOException e) {
+            flushFailure = e;
+        }
+        try {
+            fd.close(); // Always close the file descriptor, even if the buffered bytes could not be sent
+        } catch (RuntimeException e) {
+            if (flushFailure == null) {
+                throw e;
+            }
+            flushFailure.addSuppressed(e);
+        }
+        if (flushFailure != null) {
+            throw flushFailure;
+        }
     }
 }
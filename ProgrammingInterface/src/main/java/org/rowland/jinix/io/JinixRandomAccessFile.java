@@ -77,22 +77,26 @@ public class JinixRandomAccessFile implements JinixRandomAccessFileSP {
                 if (lookup instanceof RemoteFileHandle) {
                     fd = new JinixFileDescriptor(((RemoteFileHandle) lookup).getParent().
                             getRemoteFileAccessor(pid, ((RemoteFileHandle) lookup).getPath()+"/"+fileName, options));
+                    fd.setAttributeCacheKey(file.getCanonicalPath());
                     return;
                 }
                 if (lookup instanceof FileNameSpace) {
                     fd = new JinixFileDescriptor(((FileNameSpace) lookup).
                             getRemoteFileAccessor(pid, "/"+fileName, options));
+                    fd.setAttributeCacheKey(file.getCanonicalPath());
                     return;
                 }
             } else {
                 if (lookup instanceof RemoteFileHandle) {
                     fd = new JinixFileDescriptor(((RemoteFileHandle) lookup).getParent().
                             getRemoteFileAccessor(pid, ((RemoteFileHandle) lookup).getPath(), options));
+                    fd.setAttributeCacheKey(file.getCanonicalPath());
                     return;
                 }
                 // A translator that presents as a file will be an instance of a FileNameSpace.
                 if (lookup instanceof FileNameSpace) {
                     fd = new JinixFileDescriptor(((FileNameSpace) lookup).getRemoteFileAccessor(pid, "", options));
+                    fd.setAttributeCacheKey(file.getCanonicalPath());
                     return;
                 }
             }
@@ -237,6 +241,7 @@ public class JinixRandomAccessFile implements JinixRandomAccessFileSP {
             byte[] wb = new byte[1];
             wb[0] = (byte) b;
             fd.getHandle().write(JinixRuntime.getRuntime().getProcessGroupId(), wb);
+            fd.attributesChanged();
         } catch (NonWritableChannelException e) {
             throw new IOException("Illegal attempt to write to a non-writable file descriptor");
         } catch (NoSuchObjectException e) {
@@ -260,6 +265,78 @@ public class JinixRandomAccessFile implements JinixRandomAccessFileSP {
         }
         try {
             fd.getHandle().write(JinixRuntime.getRuntime().getProcessGroupId(), wb);
+            fd.attributesChanged();
+        } catch (NonWritableChannelException e) {
+            throw new IOException("Illegal attempt to write to a non-writable file descriptor");
+        } catch (NoSuchObjectException e) {
+            throw new IOException("JinixRandomAccessFile: RemoteFileAccessor has been deleted");
+        } catch (RemoteException e) {
+            throw new IOException("JinixRandomAccessFile: Jinix server failure", e.getCause());
+        }
+    }
+
+    /**
+     * Read up to len bytes from the file starting at position. The file pointer is not changed, so several threads
+     * may read from one JinixRandomAccessFile concurrently.
+     *
+     * @return the number of bytes read, or -1 if position is at or beyond the end of file
+     */
+    public int readAt(long position, byte b[], int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (position < 0) {
+            throw new IOException("Negative read offset");
+        } else if (len == 0) {
+            return 0;
+        }
+
+        try {
+            byte[] rb = fd.getHandle().readAt(JinixRuntime.getRuntime().getProcessGroupId(), position, len);
+
+            if (rb == null) {
+                return -1;
+            }
+
+            System.arraycopy(rb, 0, b, off, rb.length);
+            return rb.length;
+        } catch (NonReadableChannelException e) {
+            throw new IOException("Illegal attempt to read from a non-readable file descriptor");
+        } catch (NoSuchObjectException e) {
+            throw new IOException("JinixRandomAccessFile: RemoteFileAccessor has been deleted");
+        } catch (RemoteException e) {
+            throw new IOException("JinixRandomAccessFile: Jinix server failure", e.getCause());
+        }
+    }
+
+    public final void readFullyAt(long position, byte b[], int off, int len) throws IOException {
+        int n = 0;
+        do {
+            int count = this.readAt(position + n, b, off + n, len - n);
+            if (count < 0)
+                throw new EOFException();
+            n += count;
+        } while (n < len);
+    }
+
+    /**
+     * Write len bytes to the file starting at position. The file pointer is not changed.
+     */
+    public void writeAt(long position, byte b[], int off, int len) throws IOException {
+        if (position < 0) {
+            throw new IOException("Negative write offset");
+        }
+        byte[] wb;
+        if (off == 0 && b.length == len) {
+            wb = b;
+        } else {
+            wb = new byte[len];
+            System.arraycopy(b, off, wb, 0, len);
+        }
+        try {
+            fd.getHandle().writeAt(JinixRuntime.getRuntime().getProcessGroupId(), position, wb);
+            fd.attributesChanged();
         } catch (NonWritableChannelException e) {
             throw new IOException("Illegal attempt to write to a non-writable file descriptor");
         } catch (NoSuchObjectException e) {
@@ -287,6 +364,7 @@ public class JinixRandomAccessFile implements JinixRandomAccessFileSP {
 
     public void setLength(long newLength) throws IOException {
         fd.getHandle().setLength(newLength);
+        fd.attributesChanged();
     }
 
     public void close() throws IOException {
@@ -456,6 +534,7 @@ public class JinixRandomAccessFile implements JinixRandomAccessFileSP {
         s.getBytes(0, len, b, 0);
         try {
             fd.getHandle().write(JinixRuntime.getRuntime().getProcessGroupId(), b);
+            fd.attributesChanged();
         } catch (NonWritableChannelException e) {
             throw new IOException("Illegal attempt to write to a non-writable file descriptor");
         } catch (NoSuchObjectException e) {
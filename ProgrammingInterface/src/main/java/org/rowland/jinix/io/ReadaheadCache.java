@@ -0,0 +1,263 @@
+package org.rowland.jinix.io;
+
+import org.rowland.jinix.naming.AccessHint;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server side read ahead for a RemoteFileAccessor. A server creates one for each open file, passes it a positional
+ * block reader, and serves read() and readAt() through it. The cache watches the positions read, and while they are
+ * sequential it stages the blocks that follow on a shared pool of threads, so that the next read finds its data
+ * already in memory. The read ahead window starts at one block and doubles with each sequential read, up to 2MB. A
+ * read anywhere else drops the window back to zero.
+ *
+ * RemoteFileAccessor.advise() hints are passed to advise(). SEQUENTIAL and RANDOM override the detection, WILLNEED
+ * stages a range, DONTNEED drops it, and NOREUSE drops each block as soon as it has been returned. The server must
+ * call invalidate() for every write, and invalidateAll() when the file length changes.
+ *
+ * No server in this tree serves files from storage, so the cache is for external file servers. The Jinix client
+ * libraries do not call advise() themselves, as the call is a round trip that current servers ignore. The cache
+ * detects sequential reads without hints.
+ */
+public class ReadaheadCache {
+
+    /**
+     * Reads a block of the file. Called from the read ahead threads concurrently with the server's own calls, so
+     * it must not use or move the accessor's file pointer.
+     */
+    public interface BlockReader {
+
+        /**
+         * @return the bytes read, which may be fewer than len only at end of file, or null at or beyond end of file
+         */
+        byte[] read(long position, int len) throws IOException;
+    }
+
+    static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MAX_WINDOW = 32; // Blocks staged ahead of a sequential reader
+    private static final int MAX_BLOCKS = 64; // Blocks held by one cache, including WILLNEED ranges
+    private static final int READ_AHEAD_THREADS = 4;
+
+    private static volatile ExecutorService executor;
+
+    private final BlockReader reader;
+
+    // Staged blocks by block number, oldest first
+    private final Map<Long, CompletableFuture<byte[]>> blocks =
+            new LinkedHashMap<Long, CompletableFuture<byte[]>>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CompletableFuture<byte[]>> eldest) {
+                    return size() > MAX_BLOCKS;
+                }
+            };
+
+    private AccessHint hint = AccessHint.NORMAL;
+    private boolean noReuse = false;
+    private long nextSequentialPosition = 0; // A file is usually read from the start
+    private int window = 0;
+    private volatile long endOfFileBlock = Long.MAX_VALUE; // The last block, once a short block has been read
+
+    public ReadaheadCache(BlockReader reader) {
+        this.reader = reader;
+    }
+
+    private static ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (ReadaheadCache.class) {
+                if (executor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    ThreadPoolExecutor tpe = new ThreadPoolExecutor(READ_AHEAD_THREADS, READ_AHEAD_THREADS,
+                            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                                Thread t = new Thread(r, "ReadaheadCache-" + threadCount.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            });
+                    tpe.allowCoreThreadTimeOut(true);
+                    executor = tpe;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Read up to len bytes at position, from staged blocks where possible and from the BlockReader for the rest.
+     *
+     * @param position the file position to read from
+     * @param len the maximum number of bytes to read
+     * @return the bytes read, or null at or beyond end of file
+     * @throws IOException
+     */
+    public byte[] read(long position, int len) throws IOException {
+        boolean sequential;
+        synchronized (this) {
+            sequential = (position == nextSequentialPosition);
+            if (hint == AccessHint.SEQUENTIAL) {
+                window = MAX_WINDOW;
+            } else if (hint == AccessHint.RANDOM || !sequential) {
+                window = 0;
+            } else {
+                window = Math.min(Math.max(window * 2, 1), MAX_WINDOW);
+            }
+        }
+
+        byte[] result = new byte[len];
+        int n = 0;
+        boolean endOfFile = false;
+        while (n < len) {
+            long p = position + n;
+            long blockNumber = p / BLOCK_SIZE;
+            CompletableFuture<byte[]> staged;
+            synchronized (this) {
+                staged = blocks.get(blockNumber);
+            }
+            if (staged == null) {
+                break;
+            }
+            byte[] block;
+            try {
+                block = staged.join();
+            } catch (CompletionException e) {
+                synchronized (this) {
+                    blocks.remove(blockNumber);
+                }
+                break;
+            }
+            int offset = (int) (p - blockNumber * BLOCK_SIZE);
+            if (block == null || offset >= block.length) {
+                endOfFile = true;
+                break;
+            }
+            int l = Math.min(block.length - offset, len - n);
+            System.arraycopy(block, offset, result, n, l);
+            n += l;
+            if (block.length < BLOCK_SIZE && offset + l == block.length) {
+                endOfFile = true;
+                break;
+            }
+        }
+
+        if (n < len && !endOfFile) {
+            byte[] b = reader.read(position + n, len - n);
+            if (b != null) {
+                System.arraycopy(b, 0, result, n, b.length);
+                n += b.length;
+            }
+        }
+
+        long end = position + n;
+        synchronized (this) {
+            nextSequentialPosition = end;
+            if (sequential || noReuse) {
+                // Blocks wholly behind the reader will not be read again
+                long firstBlock = (noReuse ? end : position) / BLOCK_SIZE;
+                blocks.keySet().removeIf(b -> b < firstBlock);
+            }
+            if (n > 0 && window > 0) {
+                long firstBlock = end / BLOCK_SIZE;
+                stage(firstBlock, firstBlock + window);
+            }
+        }
+
+        if (n == 0) {
+            return null;
+        }
+        if (n < len) {
+            byte[] b = new byte[n];
+            System.arraycopy(result, 0, b, 0, n);
+            result = b;
+        }
+        return result;
+    }
+
+    /**
+     * Apply a hint from RemoteFileAccessor.advise().
+     *
+     * @param offset the start of the range
+     * @param len the length of the range, or 0 for the rest of the file
+     * @param hint the expected access pattern
+     */
+    public synchronized void advise(long offset, long len, AccessHint hint) {
+        long firstBlock = offset / BLOCK_SIZE;
+        long lastBlock = (len > 0 ? (offset + len + BLOCK_SIZE - 1) / BLOCK_SIZE : Long.MAX_VALUE);
+        switch (hint) {
+            case NORMAL:
+                this.hint = AccessHint.NORMAL;
+                noReuse = false;
+                break;
+            case SEQUENTIAL:
+                this.hint = AccessHint.SEQUENTIAL;
+                window = MAX_WINDOW;
+                // Stage from the reader's position if it is already inside the range
+                long stageFrom = Math.max(firstBlock, nextSequentialPosition / BLOCK_SIZE);
+                stage(stageFrom, Math.min(lastBlock, stageFrom + MAX_WINDOW));
+                break;
+            case RANDOM:
+                this.hint = AccessHint.RANDOM;
+                window = 0;
+                blocks.clear();
+                break;
+            case WILLNEED:
+                stage(firstBlock, Math.min(lastBlock, firstBlock + MAX_BLOCKS));
+                break;
+            case DONTNEED:
+                blocks.keySet().removeIf(b -> b >= firstBlock && b < lastBlock);
+                break;
+            case NOREUSE:
+                noReuse = true;
+                break;
+        }
+    }
+
+    /**
+     * Drop any staged blocks that overlap a range that has been written.
+     *
+     * @param position the position of the write
+     * @param len the number of bytes written
+     */
+    public synchronized void invalidate(long position, long len) {
+        long firstBlock = position / BLOCK_SIZE;
+        long lastBlock = (position + len + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        blocks.keySet().removeIf(b -> b >= firstBlock && b < lastBlock);
+        if (lastBlock > endOfFileBlock) {
+            endOfFileBlock = Long.MAX_VALUE; // The write extended the file
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        blocks.clear();
+        endOfFileBlock = Long.MAX_VALUE;
+    }
+
+    /**
+     * Start reading the blocks from firstBlock up to, but not including, lastBlock that are not already staged.
+     */
+    private void stage(long firstBlock, long lastBlock) {
+        for (long b = firstBlock; b < lastBlock && b <= endOfFileBlock; b++) {
+            if (blocks.containsKey(b)) {
+                continue;
+            }
+            long blockNumber = b;
+            blocks.put(b, CompletableFuture.supplyAsync(() -> {
+                try {
+                    byte[] block = reader.read(blockNumber * BLOCK_SIZE, BLOCK_SIZE);
+                    if (block == null || block.length < BLOCK_SIZE) {
+                        endOfFileBlock = Math.min(endOfFileBlock, blockNumber);
+                    }
+                    return block;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, getExecutor()));
+        }
+    }
+}
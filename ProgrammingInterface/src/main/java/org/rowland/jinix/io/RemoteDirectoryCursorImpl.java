@@ -0,0 +1,120 @@
+package org.rowland.jinix.io;
+
+import org.rowland.jinix.JinixKernelUnicastRemoteObject;
+import org.rowland.jinix.naming.DirectoryFileData;
+import org.rowland.jinix.naming.FileNameSpace;
+import org.rowland.jinix.naming.RemoteDirectoryCursor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Server side implementation of RemoteDirectoryCursor. A FileNameSpace implements openDirectoryCursor() by returning
+ * an instance of this class built over an iterator of directory entries, or over the names of the entries in which
+ * case the attributes of each page are read from the FileNameSpace as the page is requested. The cursor unexports
+ * itself when it is closed or when the last page has been returned.
+ */
+public class RemoteDirectoryCursorImpl extends JinixKernelUnicastRemoteObject implements RemoteDirectoryCursor {
+
+    private final Iterator<DirectoryFileData> entries;
+    private final Closeable resource;
+    private boolean closed = false;
+
+    /**
+     * @param entries the directory entries. The name field of each DirectoryFileData must hold the entry name.
+     * @param resource closed when the cursor is closed, for example the DirectoryStream that entries come from.
+     *                 May be null.
+     * @throws RemoteException
+     */
+    public RemoteDirectoryCursorImpl(Iterator<DirectoryFileData> entries, Closeable resource) throws RemoteException {
+        super();
+        this.entries = entries;
+        this.resource = resource;
+    }
+
+    /**
+     * @param fns the FileNameSpace containing the directory
+     * @param directoryPathName the directory
+     * @param names the names of the entries in the directory
+     * @throws RemoteException
+     */
+    public RemoteDirectoryCursorImpl(FileNameSpace fns, String directoryPathName, Iterator<String> names)
+            throws RemoteException {
+        this(new AttributesIterator(fns, directoryPathName, names), null);
+    }
+
+    @Override
+    public synchronized DirectoryFileData[] next(int count) throws RemoteException {
+        if (closed) {
+            return null;
+        }
+        List<DirectoryFileData> page = new ArrayList<>(count);
+        while (page.size() < count && entries.hasNext()) {
+            DirectoryFileData dfd = entries.next();
+            if (dfd != null) {
+                page.add(dfd);
+            }
+        }
+        if (page.isEmpty()) {
+            close();
+            return null;
+        }
+        return page.toArray(new DirectoryFileData[page.size()]);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+        unexport();
+    }
+
+    /**
+     * Reads the attributes of each name as it is iterated. Returns null for names removed since the directory was
+     * listed.
+     */
+    private static class AttributesIterator implements Iterator<DirectoryFileData> {
+        private final FileNameSpace fns;
+        private final String directoryPrefix;
+        private final Iterator<String> names;
+
+        private AttributesIterator(FileNameSpace fns, String directoryPathName, Iterator<String> names) {
+            this.fns = fns;
+            this.directoryPrefix = (directoryPathName.endsWith("/") ? directoryPathName : directoryPathName + "/");
+            this.names = names;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return names.hasNext();
+        }
+
+        @Override
+        public DirectoryFileData next() {
+            String name = names.next();
+            try {
+                DirectoryFileData dfd = fns.getFileAttributes(directoryPrefix + name);
+                dfd.name = name;
+                return dfd;
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (RemoteException e) {
+                throw new RuntimeException("Internal error", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.rowland.jinix.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * A buffer in /dev/shm shared by a Jinix process and a file server. The server creates the buffer in
+ * RemoteFileAccessor.openSharedMemory() and returns its path. The client maps the same file, and removes it so
+ * that the memory is released when both ends are done with it. The server should also close() the buffer when the
+ * accessor is closed, in case the client never mapped it.
+ *
+ * For readShared(), the server places up to len bytes at the start of the buffer and returns the count. For
+ * writeShared(), the client places len bytes at the start of the buffer before the call. A server backed by host
+ * files can read from its FileChannel directly into getBuffer(), so that the bytes are copied only once.
+ *
+ * /dev/shm is part of the host filesystem, so the file operations run privileged, and host paths are only built
+ * inside the privileged blocks. In a Jinix process the default FileSystemProvider returns Jinix paths to code that
+ * does not hold JinixNativeAccessPermission. The path returned by a server is not trusted. open() only maps a regular file, not a symbolic link, named jinix-[uuid] directly in /dev/shm.
+ * Buffers are created readable and writable by their owner only, so that other host users cannot read the data
+ * passing through them.
+ */
+public class SharedMemoryBuffer {
+
+    private static final String SHM_DIRECTORY = "/dev/shm";
+    private static final Pattern SHM_PATH = Pattern.compile(
+            SHM_DIRECTORY + "/jinix-[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private static final boolean available = AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> new File(SHM_DIRECTORY).isDirectory());
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+
+    private SharedMemoryBuffer(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    public static boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Create a new shared memory buffer. Called by the server.
+     *
+     * @param capacity the size of the buffer in bytes
+     */
+    public static SharedMemoryBuffer create(int capacity) throws IOException {
+        return map(SHM_DIRECTORY + "/jinix-" + UUID.randomUUID().toString(), capacity, true);
+    }
+
+    /**
+     * Map a shared memory buffer created by the server, and remove its file. Called by the client.
+     *
+     * @param shmPath the path returned by RemoteFileAccessor.openSharedMemory()
+     */
+    static SharedMemoryBuffer open(String shmPath) throws IOException {
+        SharedMemoryBuffer shm = map(checkPath(shmPath), -1, false);
+        shm.close();
+        return shm;
+    }
+
+    /**
+     * Check that a path returned by a server names a shared memory buffer.
+     *
+     * @return the path
+     * @throws IOException if the path is not a file named jinix-[uuid] directly in /dev/shm
+     */
+    private static String checkPath(String shmPath) throws IOException {
+        if (shmPath == null || !SHM_PATH.matcher(shmPath).matches()) {
+            throw new IOException("Invalid shared memory path: " + shmPath);
+        }
+        return shmPath;
+    }
+
+    /**
+     * Get a Path on the host filesystem. Must be called inside a privileged block, so that the default
+     * FileSystemProvider of a Jinix process returns a host path for the URI.
+     */
+    private static Path hostPath(String pathName) {
+        return Paths.get(new File(pathName).toURI());
+    }
+
+    private static SharedMemoryBuffer map(String pathName, int capacity, boolean create) throws IOException {
+        try {
+            return AccessController.doPrivileged((PrivilegedExceptionAction<SharedMemoryBuffer>) () -> {
+                Path path = hostPath(pathName);
+                Set<OpenOption> openOptions = new HashSet<>();
+                openOptions.add(StandardOpenOption.READ);
+                openOptions.add(StandardOpenOption.WRITE);
+                openOptions.add(LinkOption.NOFOLLOW_LINKS);
+                FileAttribute<?>[] attributes = new FileAttribute<?>[0];
+                if (create) {
+                    openOptions.add(StandardOpenOption.CREATE_NEW);
+                    attributes = new FileAttribute<?>[] {
+                            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))};
+                } else {
+                    // /dev/shm itself must not be a link to somewhere else, and the file must be a regular file
+                    if (!path.getParent().toRealPath().equals(path.getParent()) ||
+                            !Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+                                    .isRegularFile()) {
+                        throw new IOException("Invalid shared memory path: " + path);
+                    }
+                }
+                try (FileChannel fc = FileChannel.open(path, openOptions, attributes)) {
+                    long size = (create ? capacity : fc.size());
+                    return new SharedMemoryBuffer(path, fc.map(FileChannel.MapMode.READ_WRITE, 0, size));
+                }
+            });
+        } catch (PrivilegedActionException e) {
+            throw (IOException) e.getException();
+        } catch (RuntimeException e) {
+            throw new IOException("Failure mapping shared memory buffer: " + pathName, e);
+        }
+    }
+
+    public String getPath() {
+        return path.toString();
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return a view of the whole buffer with its position at 0
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * Copy bytes to the start of the buffer.
+     */
+    public void put(byte[] b, int off, int len) {
+        ByteBuffer bb = buffer.duplicate();
+        bb.put(b, off, len);
+    }
+
+    /**
+     * Copy len bytes from the start of the buffer.
+     */
+    public byte[] get(int len) {
+        byte[] b = new byte[len];
+        ByteBuffer bb = buffer.duplicate();
+        bb.get(b);
+        return b;
+    }
+
+    /**
+     * Remove the buffer's file. The memory remains mapped until the buffer is garbage collected.
+     */
+    public void close() {
+        AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Ignore
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package org.rowland.jinix.io;
+
+import org.rowland.jinix.naming.RemoteFileAccessor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A FileDataChannel over a SharedMemoryBuffer. The bytes cross in the shared buffer, and the readShared() and
+ * writeShared() RMI calls, which carry only lengths, are the doorbell. Reads are limited to the buffer capacity,
+ * and larger writes are sent in pieces.
+ */
+class SharedMemoryFileDataChannel extends FileDataChannel {
+
+    private final RemoteFileAccessor accessor;
+    private final SharedMemoryBuffer shm;
+    private final ByteBuffer view; // A view of the shared buffer reused by the ByteBuffer reads and writes
+
+    SharedMemoryFileDataChannel(RemoteFileAccessor accessor, SharedMemoryBuffer shm) {
+        this.accessor = accessor;
+        this.shm = shm;
+        this.view = shm.getBuffer();
+    }
+
+    @Override
+    public synchronized byte[] read(int pgid, int len) throws IOException {
+        int count = accessor.readShared(pgid, Math.min(len, shm.capacity()));
+        if (count < 0) {
+            return null;
+        }
+        return shm.get(count);
+    }
+
+    @Override
+    public synchronized int write(int pgid, byte[] b, int off, int len) throws IOException {
+        int written = 0;
+        while (written < len) {
+            int chunk = Math.min(len - written, shm.capacity());
+            shm.put(b, off + written, chunk);
+            written += accessor.writeShared(pgid, chunk);
+        }
+        return written;
+    }
+
+    /**
+     * Read straight from the shared buffer into dst, with no intermediate array.
+     */
+    @Override
+    public synchronized int read(int pgid, ByteBuffer dst) throws IOException {
+        int count = accessor.readShared(pgid, Math.min(dst.remaining(), shm.capacity()));
+        if (count < 0) {
+            return -1;
+        }
+        view.clear().limit(count);
+        dst.put(view);
+        return count;
+    }
+
+    /**
+     * Write straight from src into the shared buffer, with no intermediate array.
+     */
+    @Override
+    public synchronized int write(int pgid, ByteBuffer src) throws IOException {
+        int written = 0;
+        int limit = src.limit();
+        try {
+            while (src.hasRemaining()) {
+                int chunk = Math.min(src.remaining(), shm.capacity());
+                src.limit(src.position() + chunk);
+                view.clear();
+                view.put(src);
+                src.limit(limit);
+                written += accessor.writeShared(pgid, chunk);
+            }
+        } finally {
+            src.limit(limit);
+        }
+        return written;
+    }
+
+    @Override
+    public void close() {
+        shm.close();
+    }
+}
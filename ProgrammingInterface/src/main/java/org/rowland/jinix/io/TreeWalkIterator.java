@@ -0,0 +1,98 @@
+package org.rowland.jinix.io;
+
+import org.rowland.jinix.naming.DirectoryFileData;
+import org.rowland.jinix.naming.FileNameSpace;
+import org.rowland.jinix.naming.WalkFilter;
+
+import java.nio.file.NotDirectoryException;
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks the tree below a directory of a FileNameSpace in depth first pre-order, listing each directory with
+ * listWithAttributes() as the walk reaches it. The name of each returned DirectoryFileData is replaced with the path
+ * of the entry relative to the root. A FileNameSpace implements walk() by returning a RemoteDirectoryCursorImpl
+ * over an instance of this class.
+ */
+public class TreeWalkIterator implements Iterator<DirectoryFileData> {
+
+    private final FileNameSpace fns;
+    private final String rootPrefix;
+    private final int maxDepth;
+    private final WalkFilter filter;
+
+    private final Deque<Level> stack = new ArrayDeque<>();
+    private DirectoryFileData next;
+
+    private static class Level {
+        private final String relativePrefix;
+        private final int depth;
+        private final DirectoryFileData[] entries;
+        private int i = 0;
+
+        private Level(String relativePrefix, int depth, DirectoryFileData[] entries) {
+            this.relativePrefix = relativePrefix;
+            this.depth = depth;
+            this.entries = entries;
+        }
+    }
+
+    public TreeWalkIterator(FileNameSpace fns, String rootPathName, int maxDepth, WalkFilter filter)
+            throws NotDirectoryException, RemoteException {
+        this.fns = fns;
+        this.rootPrefix = (rootPathName.endsWith("/") ? rootPathName : rootPathName + "/");
+        this.maxDepth = maxDepth;
+        this.filter = filter;
+        if (maxDepth > 0) {
+            DirectoryFileData[] entries = fns.listWithAttributes(rootPathName);
+            if (entries == null) {
+                throw new NotDirectoryException(rootPathName);
+            }
+            stack.push(new Level("", 1, entries));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !stack.isEmpty()) {
+            Level level = stack.peek();
+            if (level.i >= level.entries.length) {
+                stack.pop();
+                continue;
+            }
+            DirectoryFileData dfd = level.entries[level.i++];
+            String name = dfd.name;
+            String relativePath = level.relativePrefix + name;
+            if (dfd.type == DirectoryFileData.FileType.DIRECTORY && level.depth < maxDepth) {
+                try {
+                    DirectoryFileData[] children = fns.listWithAttributes(rootPrefix + relativePath);
+                    if (children != null) {
+                        stack.push(new Level(relativePath + "/", level.depth + 1, children));
+                    }
+                } catch (NotDirectoryException e) {
+                    // Replaced since its parent was listed
+                } catch (RemoteException e) {
+                    throw new RuntimeException("Internal error", e);
+                }
+            }
+            if (filter == null || filter.accept(name, dfd)) {
+                dfd.name = relativePath;
+                next = dfd;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public DirectoryFileData next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        DirectoryFileData rtrn = next;
+        next = null;
+        return rtrn;
+    }
+}
@@ -5,6 +5,7 @@ import org.rowland.jinix.exec.InvalidExecutableException;
 import org.rowland.jinix.io.JinixFile;
 import org.rowland.jinix.io.JinixFileDescriptor;
 import org.rowland.jinix.io.JinixPipe;
+import org.rowland.jinix.naming.AttributedLookupResult;
 import org.rowland.jinix.naming.NameSpace;
 import org.rowland.jinix.naming.RemoteFileHandle;
 import org.rowland.jinix.proc.ProcessManager;
@@ -67,6 +68,28 @@ public abstract class JinixRuntime {
      */
     public abstract Object lookup(String path);
 
+    /**
+     * Lookup an object in the root NameSpace, and get its attributes in the same call.
+     *
+     * @return the object and its attributes, or null if nothing exists at path
+     */
+    public abstract AttributedLookupResult lookupWithAttributes(String path);
+
+    /**
+     * Lookup a list of objects in the root NameSpace in a single call.
+     *
+     * @return the object found at each path, in the order of paths, with null where nothing was found
+     */
+    public abstract Object[] lookupAll(String[] paths);
+
+    /**
+     * Test whether an object exists in the root NameSpace. A translator is only activated when the path is under a
+     * translator that is not running.
+     *
+     * @return true if lookup() would return an object
+     */
+    public abstract boolean exists(String path);
+
     public abstract void bind(String path, Object obj);
 
     public abstract void unbind(String path);
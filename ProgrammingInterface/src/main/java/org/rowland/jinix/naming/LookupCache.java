@@ -0,0 +1,186 @@
+package org.rowland.jinix.naming;
+
+import org.rowland.jinix.JinixKernelUnicastRemoteObject;
+
+import java.rmi.RemoteException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A per process cache of the results of NameSpace lookups, keyed by path. Found objects and paths that were not found
+ * are cached in separate LRU maps with separate times to live, set in milliseconds with the jinix.lookupCache.ttl
+ * (default 2000) and jinix.lookupCache.negativeTtl (default 500) system properties. A time to live of 0 disables
+ * the map.
+ *
+ * Changes to NameSpace bindings, including translators starting and stopping, invalidate entries through a
+ * NameSpaceChangeListener. Files created, deleted or moved by this process are invalidated by JinixAttributeCache.
+ * Files changed by other processes are only bounded by the time to live.
+ */
+public class LookupCache {
+
+    private static final long TTL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("jinix.lookupCache.ttl", 2000));
+    private static final long NEGATIVE_TTL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("jinix.lookupCache.negativeTtl", 500));
+    private static final int MAX_ENTRIES = 1024;
+
+    /**
+     * A cached lookup result. object is null for a path that was not found.
+     */
+    public static class Entry {
+        public final Object object;
+        private final long expires;
+
+        private Entry(Object object, long ttlNanos) {
+            this.object = object;
+            this.expires = System.nanoTime() + ttlNanos;
+        }
+    }
+
+    private static final Map<String, Entry> positive = newLRUMap();
+    private static final Map<String, Entry> negative = newLRUMap();
+
+    // Incremented by every invalidation, so that a lookup that raced with an invalidation is not cached.
+    private static long generation = 0;
+
+    private static Listener listener;
+
+    private static Map<String, Entry> newLRUMap() {
+        return new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    /**
+     * Get a live entry for a path.
+     *
+     * @param path the path
+     * @return the entry, or null if the path must be looked up
+     */
+    public static synchronized Entry get(String path) {
+        Entry e = positive.get(path);
+        if (e == null) {
+            e = negative.get(path);
+        }
+        if (e != null) {
+            if (System.nanoTime() - e.expires < 0) {
+                return e;
+            }
+            positive.remove(path);
+            negative.remove(path);
+        }
+        return null;
+    }
+
+    /**
+     * @return the current generation, to be passed to put() with the result of the lookup that follows
+     */
+    public static synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Cache the result of a lookup.
+     *
+     * @param path the path
+     * @param object the object found, or null if nothing was found
+     * @param lookupGeneration the value of getGeneration() before the lookup was sent
+     */
+    public static synchronized void put(String path, Object object, long lookupGeneration) {
+        if (lookupGeneration != generation) {
+            return;
+        }
+        if (object != null) {
+            if (TTL_NANOS > 0) {
+                negative.remove(path);
+                positive.put(path, new Entry(object, TTL_NANOS));
+            }
+        } else {
+            if (NEGATIVE_TTL_NANOS > 0) {
+                positive.remove(path);
+                negative.put(path, new Entry(null, NEGATIVE_TTL_NANOS));
+            }
+        }
+    }
+
+    public static synchronized void invalidate(String path) {
+        generation++;
+        positive.remove(path);
+        negative.remove(path);
+    }
+
+    /**
+     * Remove the entries for a path and every path below it.
+     *
+     * @param path the path
+     */
+    public static synchronized void invalidateTree(String path) {
+        generation++;
+        positive.remove(path);
+        negative.remove(path);
+        String prefix = (path.endsWith("/") ? path : path + "/");
+        positive.keySet().removeIf(k -> k.startsWith(prefix));
+        negative.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    public static synchronized void invalidateAll() {
+        generation++;
+        positive.clear();
+        negative.clear();
+    }
+
+    /**
+     * Register with the NameSpace for notification of binding changes. If registration fails, entries are only
+     * bounded by their time to live.
+     *
+     * @param ns the root NameSpace
+     */
+    public static synchronized void registerForChangeNotification(NameSpace ns) {
+        if (listener != null) {
+            return;
+        }
+        try {
+            listener = new Listener();
+            ns.registerChangeListener(listener);
+        } catch (RemoteException e) {
+            if (listener != null) {
+                listener.unexport();
+                listener = null;
+            }
+        }
+    }
+
+    /**
+     * Unregister from the NameSpace, and unexport the listener. Called when the process exits.
+     *
+     * @param ns the root NameSpace
+     */
+    public static synchronized void unregisterForChangeNotification(NameSpace ns) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            ns.unregisterChangeListener(listener);
+        } catch (RemoteException e) {
+            // The NameSpace drops the listener when it can no longer be reached
+        }
+        listener.unexport();
+        listener = null;
+    }
+
+    private static class Listener extends JinixKernelUnicastRemoteObject implements NameSpaceChangeListener {
+
+        private Listener() throws RemoteException {
+            super();
+        }
+
+        @Override
+        public void nameSpaceChanged(String path) {
+            invalidateTree(path);
+        }
+    }
+}
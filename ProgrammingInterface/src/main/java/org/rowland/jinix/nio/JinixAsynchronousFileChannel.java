@@ -0,0 +1,316 @@
+package org.rowland.jinix.nio;
+
+import org.rowland.jinix.io.JinixFileDescriptor;
+import org.rowland.jinix.lang.JinixRuntime;
+import org.rowland.jinix.naming.RemoteFileAccessor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An AsynchronousFileChannel for the Jinix OS. Operations are positional RemoteFileAccessor calls run on an
+ * executor, so any number of reads and writes may be outstanding on one channel. Channels opened without an
+ * executor share a bounded pool of I/O threads. Operations wait in the pool's queue when all of its threads are
+ * busy. A lock() that waits for a conflicting lock runs on a separate, unbounded pool, so that lock waits never hold
+ * the I/O threads.
+ */
+public class JinixAsynchronousFileChannel extends AsynchronousFileChannel {
+
+    private static final int IO_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static volatile ExecutorService sharedExecutor;
+    private static volatile ExecutorService lockExecutor;
+
+    private final JinixFileDescriptor fd;
+    private final RemoteFileAccessor raf;
+    private final Set<? extends OpenOption> options;
+    private final ExecutorService executor;
+
+    private volatile boolean closed = false;
+
+    // Locks acquired through this channel, released on close
+    private final List<JinixFileLockImpl> locks = new ArrayList<>();
+
+    public static JinixAsynchronousFileChannel open(JinixFileDescriptor fd, Set<? extends OpenOption> options,
+                                                    ExecutorService executor) {
+        return new JinixAsynchronousFileChannel(fd, options, (executor != null ? executor : getSharedExecutor()));
+    }
+
+    private JinixAsynchronousFileChannel(JinixFileDescriptor fd, Set<? extends OpenOption> options,
+                                         ExecutorService executor) {
+        this.fd = fd;
+        this.raf = fd.getHandle();
+        this.options = options;
+        this.executor = executor;
+    }
+
+    static ExecutorService getSharedExecutor() {
+        if (sharedExecutor == null) {
+            synchronized (JinixAsynchronousFileChannel.class) {
+                if (sharedExecutor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    ThreadPoolExecutor tpe = new ThreadPoolExecutor(IO_THREADS, IO_THREADS, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(), r -> {
+                                Thread t = new Thread(r, "JinixAsynchronousFileChannel-" + threadCount.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            });
+                    tpe.allowCoreThreadTimeOut(true);
+                    sharedExecutor = tpe;
+                }
+            }
+        }
+        return sharedExecutor;
+    }
+
+    private static ExecutorService getLockExecutor() {
+        if (lockExecutor == null) {
+            synchronized (JinixAsynchronousFileChannel.class) {
+                if (lockExecutor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    lockExecutor = Executors.newCachedThreadPool(r -> {
+                        Thread t = new Thread(r, "JinixAsynchronousFileChannel lock-" + threadCount.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return lockExecutor;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return raf.length();
+    }
+
+    @Override
+    public AsynchronousFileChannel truncate(long size) throws IOException {
+        ensureOpen();
+        if (size < 0)
+            throw new IllegalArgumentException("Negative size");
+        if (!options.contains(StandardOpenOption.WRITE))
+            throw new NonWritableChannelException();
+        if (size < raf.length()) {
+            raf.setLength(size);
+            fd.attributesChanged();
+        }
+        return this;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+        ensureOpen();
+        raf.force(metaData);
+    }
+
+    @Override
+    public <A> void lock(long position, long size, boolean shared, A attachment,
+                         CompletionHandler<FileLock, ? super A> handler) {
+        if (handler == null)
+            throw new NullPointerException("'handler' is null");
+        complete(lockAsync(position, size, shared), attachment, handler);
+    }
+
+    @Override
+    public Future<FileLock> lock(long position, long size, boolean shared) {
+        return lockAsync(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        checkLockArguments(position, size, shared);
+        ensureOpen();
+        return acquireLock(position, size, shared, false);
+    }
+
+    @Override
+    public <A> void read(ByteBuffer dst, long position, A attachment,
+                         CompletionHandler<Integer, ? super A> handler) {
+        if (handler == null)
+            throw new NullPointerException("'handler' is null");
+        complete(readAsync(dst, position), attachment, handler);
+    }
+
+    @Override
+    public Future<Integer> read(ByteBuffer dst, long position) {
+        return readAsync(dst, position);
+    }
+
+    @Override
+    public <A> void write(ByteBuffer src, long position, A attachment,
+                          CompletionHandler<Integer, ? super A> handler) {
+        if (handler == null)
+            throw new NullPointerException("'handler' is null");
+        complete(writeAsync(src, position), attachment, handler);
+    }
+
+    @Override
+    public Future<Integer> write(ByteBuffer src, long position) {
+        return writeAsync(src, position);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        List<JinixFileLockImpl> acquiredLocks;
+        synchronized (locks) {
+            acquiredLocks = new ArrayList<>(locks);
+            locks.clear();
+        }
+        for (JinixFileLockImpl fl : acquiredLocks) {
+            fl.invalidate();
+        }
+        fd.close();
+    }
+
+    void removeLock(JinixFileLockImpl fl) {
+        synchronized (locks) {
+            locks.remove(fl);
+        }
+    }
+
+    private CompletableFuture<Integer> readAsync(ByteBuffer dst, long position) {
+        if (dst == null)
+            throw new NullPointerException();
+        if (position < 0)
+            throw new IllegalArgumentException("Negative position");
+        if (dst.isReadOnly())
+            throw new IllegalArgumentException("Read-only buffer");
+        if (!options.contains(StandardOpenOption.READ))
+            throw new NonReadableChannelException();
+        if (closed)
+            return CompletableFuture.failedFuture(new ClosedChannelException());
+
+        int len = dst.remaining();
+        if (len == 0)
+            return CompletableFuture.completedFuture(0);
+
+        return submit(executor, () -> {
+            byte[] b = raf.readAt(JinixRuntime.getRuntime().getProcessGroupId(), position, len);
+            if (b == null) {
+                return -1;
+            }
+            dst.put(b);
+            return b.length;
+        });
+    }
+
+    private CompletableFuture<Integer> writeAsync(ByteBuffer src, long position) {
+        if (src == null)
+            throw new NullPointerException();
+        if (position < 0)
+            throw new IllegalArgumentException("Negative position");
+        if (!options.contains(StandardOpenOption.WRITE))
+            throw new NonWritableChannelException();
+        if (closed)
+            return CompletableFuture.failedFuture(new ClosedChannelException());
+
+        // Take the bytes now, so that the caller's buffer position is updated when write() returns.
+        byte[] b = new byte[src.remaining()];
+        src.get(b);
+        if (b.length == 0)
+            return CompletableFuture.completedFuture(0);
+
+        return submit(executor, () -> {
+            int n = raf.writeAt(JinixRuntime.getRuntime().getProcessGroupId(), position, b);
+            fd.attributesChanged();
+            return n;
+        });
+    }
+
+    private CompletableFuture<FileLock> lockAsync(long position, long size, boolean shared) {
+        checkLockArguments(position, size, shared);
+        if (closed)
+            return CompletableFuture.failedFuture(new ClosedChannelException());
+        return submit(getLockExecutor(), () -> acquireLock(position, size, shared, true));
+    }
+
+    private void checkLockArguments(long position, long size, boolean shared) {
+        if ((position < 0) || (size < 0))
+            throw new IllegalArgumentException();
+        if (shared && !options.contains(StandardOpenOption.READ))
+            throw new NonReadableChannelException();
+        if (!shared && !options.contains(StandardOpenOption.WRITE))
+            throw new NonWritableChannelException();
+    }
+
+    private FileLock acquireLock(long position, long size, boolean shared, boolean wait) throws IOException {
+        JinixFileLockImpl fl = JinixFileLockImpl.acquire(this, raf, position, size, shared, wait);
+        if (fl == null) {
+            return null;
+        }
+        synchronized (locks) {
+            locks.add(fl);
+        }
+        return fl;
+    }
+
+    private interface IOOperation<V> {
+        V run() throws IOException;
+    }
+
+    private <V> CompletableFuture<V> submit(ExecutorService executor, IOOperation<V> op) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (closed) {
+                future.completeExceptionally(new AsynchronousCloseException());
+                return;
+            }
+            try {
+                future.complete(op.run());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    private <V, A> void complete(CompletableFuture<V> future, A attachment, CompletionHandler<V, ? super A> handler) {
+        future.whenComplete((result, t) -> {
+            if (t == null) {
+                handler.completed(result, attachment);
+            } else {
+                handler.failed((t instanceof CompletionException && t.getCause() != null ? t.getCause() : t),
+                        attachment);
+            }
+        });
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new ClosedChannelException();
+    }
+}
@@ -0,0 +1,168 @@
+package org.rowland.jinix.nio;
+
+import org.rowland.jinix.lang.JinixRuntime;
+import org.rowland.jinix.naming.AttributedLookupResult;
+import org.rowland.jinix.naming.DirectoryFileData;
+import org.rowland.jinix.naming.FileNameSpace;
+import org.rowland.jinix.naming.LookupCache;
+import org.rowland.jinix.naming.RemoteFileHandle;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A per process cache of file attributes keyed by absolute normalized path. Each entry saves the
+ * lookupWithAttributes() call needed to stat a file. Entries expire after a short time to live, set in milliseconds with
+ * the jinix.attributeCache.ttl system property (0 disables the cache). Changes made through this process invalidate
+ * the entries they affect, and the matching entries of the LookupCache.
+ */
+public class JinixAttributeCache {
+
+    private static final long TTL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("jinix.attributeCache.ttl", 1000));
+    private static final int MAX_ENTRIES = 4096;
+
+    /**
+     * What a path resolved to.
+     */
+    public enum Kind {
+        FILE_HANDLE, // A file or directory, attributes from RemoteFileHandle.getAttributes()
+        NAME_SPACE,  // A FileNameSpace, attributes from its attachment point in the parent FileNameSpace
+        OTHER        // Any other object, no attributes
+    }
+
+    public static class Entry {
+        public final Kind kind;
+        public final DirectoryFileData attributes;
+        private final long expires;
+
+        private Entry(Kind kind, DirectoryFileData attributes) {
+            this.kind = kind;
+            this.attributes = attributes;
+            this.expires = System.nanoTime() + TTL_NANOS;
+        }
+
+        /**
+         * @return true until the time to live of the entry has passed
+         */
+        public boolean isLive() {
+            return System.nanoTime() - expires < 0;
+        }
+    }
+
+    /**
+     * Create an entry for attributes returned by FileNameSpace.listWithAttributes(). Prefetched entries are not
+     * added to the cache, as a listing does not show translators bound to its entries. They are carried by the
+     * JinixPath or JinixFile created for the directory entry instead, and expire like cache entries.
+     *
+     * @param attributes the attributes of a directory entry
+     * @return an entry of kind FILE_HANDLE
+     */
+    public static Entry prefetched(DirectoryFileData attributes) {
+        return new Entry(Kind.FILE_HANDLE, attributes);
+    }
+
+    private static final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Incremented by every invalidation, so that a lookup that raced with an invalidation is not cached.
+    private static long generation = 0;
+
+    /**
+     * Get the attributes of a path, from the cache if a live entry exists.
+     *
+     * @param path an absolute normalized path
+     * @return the cache entry, or null if nothing exists at path
+     */
+    public static Entry get(String path) {
+        long lookupGeneration = 0;
+        if (TTL_NANOS > 0) {
+            synchronized (cache) {
+                Entry e = cache.get(path);
+                if (e != null) {
+                    if (e.isLive()) {
+                        return e;
+                    }
+                    cache.remove(path);
+                }
+                lookupGeneration = generation;
+            }
+        }
+
+        AttributedLookupResult result = JinixRuntime.getRuntime().lookupWithAttributes(path);
+        if (result == null) {
+            return null;
+        }
+        Entry e;
+        if (result.object instanceof RemoteFileHandle) {
+            e = new Entry(Kind.FILE_HANDLE, result.attributes);
+        } else if (result.object instanceof FileNameSpace) {
+            e = new Entry(Kind.NAME_SPACE, result.attributes);
+        } else {
+            e = new Entry(Kind.OTHER, null);
+        }
+
+        if (TTL_NANOS > 0) {
+            synchronized (cache) {
+                if (lookupGeneration == generation) {
+                    cache.put(path, e);
+                }
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Remove the entry for a path, and the entry for its parent directory whose modification time changes when
+     * entries are added or removed.
+     *
+     * @param path an absolute normalized path
+     */
+    public static void invalidate(String path) {
+        if (path == null) {
+            return;
+        }
+        LookupCache.invalidate(path);
+        synchronized (cache) {
+            generation++;
+            cache.remove(path);
+            int i = path.lastIndexOf('/');
+            if (i > 0) {
+                cache.remove(path.substring(0, i));
+            } else if (i == 0 && path.length() > 1) {
+                cache.remove("/");
+            }
+        }
+    }
+
+    /**
+     * Remove the entries for a path and everything beneath it. Used when a directory is moved or deleted.
+     *
+     * @param path an absolute normalized path
+     */
+    public static void invalidateTree(String path) {
+        if (path == null) {
+            return;
+        }
+        invalidate(path);
+        LookupCache.invalidateTree(path);
+        String prefix = (path.endsWith("/") ? path : path + "/");
+        synchronized (cache) {
+            generation++;
+            cache.keySet().removeIf(k -> k.startsWith(prefix));
+        }
+    }
+
+    public static void invalidateAll() {
+        LookupCache.invalidateAll();
+        synchronized (cache) {
+            generation++;
+            cache.clear();
+        }
+    }
+}
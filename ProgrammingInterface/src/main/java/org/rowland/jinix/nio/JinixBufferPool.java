@@ -0,0 +1,45 @@
+package org.rowland.jinix.nio;
+
+/**
+ * A small pool of byte arrays for one channel. An RMI call sends a byte[] whole, so the array passed to write() must
+ * be exactly the length of the data. The pool keeps the last few arrays released, and hands one back when an array
+ * of the same length is wanted again. A program that writes in fixed size blocks then reuses the same array for
+ * every write.
+ */
+class JinixBufferPool {
+
+    private static final int MAX_ARRAYS = 4;
+    private static final int MAX_ARRAY_SIZE = 1024 * 1024;
+
+    private final byte[][] arrays = new byte[MAX_ARRAYS][];
+    private int next = 0; // The slot replaced when the pool is full
+
+    /**
+     * @param len the array length
+     * @return a pooled array of exactly len bytes, or a new one
+     */
+    synchronized byte[] acquire(int len) {
+        for (int i = 0; i < MAX_ARRAYS; i++) {
+            byte[] b = arrays[i];
+            if (b != null && b.length == len) {
+                arrays[i] = null;
+                return b;
+            }
+        }
+        return new byte[len];
+    }
+
+    synchronized void release(byte[] b) {
+        if (b.length > MAX_ARRAY_SIZE) {
+            return;
+        }
+        for (int i = 0; i < MAX_ARRAYS; i++) {
+            if (arrays[i] == null) {
+                arrays[i] = b;
+                return;
+            }
+        }
+        arrays[next] = b;
+        next = (next + 1) % MAX_ARRAYS;
+    }
+}
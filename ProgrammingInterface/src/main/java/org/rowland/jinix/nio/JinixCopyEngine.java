@@ -0,0 +1,267 @@
+package org.rowland.jinix.nio;
+
+import org.rowland.jinix.lang.JinixRuntime;
+import org.rowland.jinix.naming.DirectoryFileData;
+import org.rowland.jinix.naming.FileNameSpace;
+import org.rowland.jinix.naming.RemoteFileAccessor;
+import org.rowland.jinix.naming.RemoteFileHandle;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.CopyOption;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copies files and directory trees between FileNameSpaces. A copy that is not recursive copies a file, or creates an
+ * empty directory, as Files.copy() does. A recursive copy, used by moves and JinixFiles.copyTree(), copies the whole
+ * tree below a directory. The tree is traversed on the calling thread, which
+ * creates the target directories and files, and splits each file into chunks of jinix.copy.chunkSize bytes (default
+ * 8MB). The chunks are copied in parallel by a pool of jinix.copy.threads workers (default 4). Each chunk is a single
+ * RemoteFileAccessor.transferTo() call, so the bytes go from the source server to the target server without passing
+ * through this process. The traversal waits when the workers fall behind, so a large tree is never queued in memory.
+ *
+ * An engine copies a single tree and is then discarded.
+ */
+class JinixCopyEngine {
+
+    private static final long CHUNK_SIZE = Long.getLong("jinix.copy.chunkSize", 8 * 1024 * 1024);
+    private static final int THREADS = Integer.getInteger("jinix.copy.threads", 4);
+
+    private final boolean recursive;
+    private final boolean replaceExisting;
+    private final boolean copyAttributes;
+    private final JinixCopyProgress.Listener progressListener;
+    private final int pid;
+    private final int pgid;
+
+    private final ExecutorService workers;
+    private final Semaphore outstandingChunks = new Semaphore(THREADS * 4);
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private final AtomicLong filesCopied = new AtomicLong();
+    private final AtomicLong bytesCopied = new AtomicLong();
+
+    /**
+     * @param recursive true to copy the contents of directories
+     * @param options the copy options
+     */
+    JinixCopyEngine(boolean recursive, CopyOption... options) {
+        this.recursive = recursive;
+        List<CopyOption> optionList = Arrays.asList(options);
+        replaceExisting = optionList.contains(StandardCopyOption.REPLACE_EXISTING);
+        copyAttributes = optionList.contains(StandardCopyOption.COPY_ATTRIBUTES);
+        progressListener = JinixCopyProgress.find(options);
+        pid = JinixRuntime.getRuntime().getPid();
+        pgid = JinixRuntime.getRuntime().getProcessGroupId();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "JinixCopyEngine-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Copy a file or directory tree, and wait for every chunk to be copied.
+     *
+     * @param source the file or directory to copy
+     * @param sourceAttributes the attributes of source
+     * @param targetDirectory the directory to copy into
+     * @param targetFileName the name of the copy in targetDirectory
+     * @throws IOException
+     */
+    void copy(RemoteFileHandle source, DirectoryFileData sourceAttributes, RemoteFileHandle targetDirectory,
+              String targetFileName) throws IOException {
+        try {
+            copy(source.getParent(), source.getPath(), sourceAttributes,
+                    targetDirectory.getParent(), child(targetDirectory.getPath(), targetFileName));
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, (e instanceof IOException ? (IOException) e : new IOException(e)));
+        } finally {
+            workers.shutdown();
+            try {
+                while (!workers.awaitTermination(1, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                throw new InterruptedIOException();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private void copy(FileNameSpace srcFns, String srcPath, DirectoryFileData srcAttributes,
+                      FileNameSpace targetFns, String targetPath) throws IOException {
+        if (failure.get() != null) {
+            return;
+        }
+        if (srcAttributes.type == DirectoryFileData.FileType.DIRECTORY) {
+            copyDirectory(srcFns, srcPath, srcAttributes, targetFns, targetPath);
+        } else {
+            copyFile(srcFns, srcPath, srcAttributes, targetFns, targetPath);
+        }
+    }
+
+    private void copyDirectory(FileNameSpace srcFns, String srcPath, DirectoryFileData srcAttributes,
+                               FileNameSpace targetFns, String targetPath) throws IOException {
+        int i = targetPath.lastIndexOf('/');
+        try {
+            targetFns.createDirectory((i > 0 ? targetPath.substring(0, i) : "/"), targetPath.substring(i + 1));
+        } catch (FileAlreadyExistsException e) {
+            if (!replaceExisting) {
+                throw e;
+            }
+        }
+
+        if (recursive) {
+            DirectoryFileData[] entries = srcFns.listWithAttributes(srcPath);
+            if (entries == null) {
+                throw new NotDirectoryException(srcPath);
+            }
+            for (DirectoryFileData entry : entries) {
+                copy(srcFns, child(srcPath, entry.name), entry, targetFns, child(targetPath, entry.name));
+            }
+        }
+        if (copyAttributes) {
+            setLastModified(targetFns, targetPath, srcAttributes);
+        }
+    }
+
+    private void copyFile(FileNameSpace srcFns, String srcPath, DirectoryFileData srcAttributes,
+                          FileNameSpace targetFns, String targetPath) throws IOException {
+        Set<? extends OpenOption> createOptions = (replaceExisting ?
+                EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING) :
+                EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW));
+        RemoteFileAccessor target = targetFns.getRemoteFileAccessor(pid, targetPath, createOptions);
+        try {
+            // Set the length first, so that chunks can be written at any position in any order.
+            target.setLength(srcAttributes.length);
+        } finally {
+            target.close();
+        }
+
+        if (srcAttributes.length == 0) {
+            fileCopied(targetFns, targetPath, srcAttributes);
+            return;
+        }
+
+        RemoteFileAccessor src = srcFns.getRemoteFileAccessor(pid, srcPath, EnumSet.of(StandardOpenOption.READ));
+        int chunks = (int) ((srcAttributes.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        AtomicInteger remainingChunks = new AtomicInteger(chunks);
+        for (int c = 0; c < chunks; c++) {
+            long position = c * CHUNK_SIZE;
+            long count = Math.min(CHUNK_SIZE, srcAttributes.length - position);
+            try {
+                outstandingChunks.acquire();
+            } catch (InterruptedException e) {
+                if (remainingChunks.addAndGet(c - chunks) == 0) {
+                    src.close();
+                }
+                throw new InterruptedIOException();
+            }
+            workers.execute(() -> {
+                try {
+                    if (failure.get() == null) {
+                        copyChunk(src, targetFns, targetPath, position, count);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, (e instanceof IOException ? (IOException) e : new IOException(e)));
+                } finally {
+                    outstandingChunks.release();
+                    if (remainingChunks.decrementAndGet() == 0) {
+                        try {
+                            src.close();
+                            if (failure.get() == null) {
+                                fileCopied(targetFns, targetPath, srcAttributes);
+                            }
+                        } catch (IOException e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private void copyChunk(RemoteFileAccessor src, FileNameSpace targetFns, String targetPath,
+                           long position, long count) throws IOException {
+        // Each chunk writes through its own accessor, as transferTo() writes at the target's file pointer.
+        RemoteFileAccessor target = targetFns.getRemoteFileAccessor(pid, targetPath,
+                EnumSet.of(StandardOpenOption.WRITE));
+        try {
+            target.seek(position);
+            long transferred = src.transferTo(pgid, position, count, target);
+            reportProgress(0, transferred);
+        } finally {
+            target.close();
+        }
+    }
+
+    private void fileCopied(FileNameSpace targetFns, String targetPath, DirectoryFileData srcAttributes)
+            throws IOException {
+        if (copyAttributes) {
+            setLastModified(targetFns, targetPath, srcAttributes);
+        }
+        reportProgress(1, 0);
+    }
+
+    private void setLastModified(FileNameSpace targetFns, String targetPath, DirectoryFileData srcAttributes)
+            throws IOException {
+        DirectoryFileData dfd = new DirectoryFileData();
+        dfd.lastModified = srcAttributes.lastModified;
+        targetFns.setFileAttributes(targetPath, dfd);
+    }
+
+    private void reportProgress(long files, long bytes) {
+        long f = filesCopied.addAndGet(files);
+        long b = bytesCopied.addAndGet(bytes);
+        if (progressListener != null) {
+            progressListener.progress(f, b);
+        }
+    }
+
+    /**
+     * Delete a file or directory tree, deepest entries first. Used to remove the source of a move between
+     * FileNameSpaces once it has been copied.
+     *
+     * @param fns the FileNameSpace holding the tree
+     * @param path the path of the root of the tree
+     * @param attributes the attributes of the root of the tree
+     * @throws IOException
+     */
+    static void deleteTree(FileNameSpace fns, String path, DirectoryFileData attributes) throws IOException {
+        if (attributes.type == DirectoryFileData.FileType.DIRECTORY) {
+            DirectoryFileData[] entries = fns.listWithAttributes(path);
+            if (entries != null) {
+                for (DirectoryFileData entry : entries) {
+                    deleteTree(fns, child(path, entry.name), entry);
+                }
+            }
+        }
+        fns.delete(path);
+    }
+
+    private static String child(String directoryPathName, String name) {
+        if (directoryPathName.endsWith("/.")) {
+            directoryPathName = directoryPathName.substring(0, directoryPathName.length() - 1);
+        }
+        return (directoryPathName.endsWith("/") ? directoryPathName + name : directoryPathName + "/" + name);
+    }
+}
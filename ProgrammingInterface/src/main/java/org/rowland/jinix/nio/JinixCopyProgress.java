@@ -0,0 +1,57 @@
+package org.rowland.jinix.nio;
+
+import java.nio.file.CopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A CopyOption that reports the progress of a Files.copy() or Files.move() between FileNameSpaces, or of a
+ * JinixFiles.copyTree(), to a listener. The listener is called from the copy worker threads each time a chunk of a
+ * file has been copied. The option is ignored by Files.copy() and Files.move() within a single FileNameSpace, which
+ * are done by the server in one call.
+ */
+public class JinixCopyProgress implements CopyOption {
+
+    public interface Listener {
+
+        /**
+         * @param filesCopied the number of files completely copied so far
+         * @param bytesCopied the number of bytes copied so far
+         */
+        void progress(long filesCopied, long bytesCopied);
+    }
+
+    private final Listener listener;
+
+    public JinixCopyProgress(Listener listener) {
+        if (listener == null)
+            throw new NullPointerException();
+        this.listener = listener;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    static Listener find(CopyOption... options) {
+        for (CopyOption option : options) {
+            if (option instanceof JinixCopyProgress) {
+                return ((JinixCopyProgress) option).listener;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove any JinixCopyProgress from a set of options before they are sent to a FileNameSpace.
+     */
+    static CopyOption[] strip(CopyOption... options) {
+        List<CopyOption> stripped = new ArrayList<>(options.length);
+        for (CopyOption option : options) {
+            if (!(option instanceof JinixCopyProgress)) {
+                stripped.add(option);
+            }
+        }
+        return stripped.toArray(new CopyOption[stripped.size()]);
+    }
+}
@@ -0,0 +1,252 @@
+package org.rowland.jinix.nio;
+
+import org.rowland.jinix.naming.DirectoryFileData;
+import org.rowland.jinix.naming.RemoteDirectoryCursor;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.rmi.RemoteException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * A DirectoryStream that reads a directory a page at a time through a RemoteDirectoryCursor. While one page is being
+ * consumed, the next page is fetched on the shared I/O executor. If the FileNameSpace does not support cursors, the
+ * stream is built over the complete listing from listWithAttributes() instead. Each returned path carries the
+ * attributes of its directory entry.
+ *
+ * The spliterator() splits at page boundaries, so a parallel stream over the directory processes each page on a
+ * different thread.
+ */
+class JinixDirectoryStream implements DirectoryStream<Path> {
+
+    static final int PAGE_SIZE = 256;
+
+    private final JinixFileSystem fs;
+    private final Path dir;
+    private final DirectoryStream.Filter<? super Path> filter;
+    private final RemoteDirectoryCursor cursor;
+
+    private DirectoryFileData[] listing; // The complete listing when there is no cursor
+    private CompletableFuture<DirectoryFileData[]> nextPage;
+    private boolean exhausted = false;
+    private volatile boolean closed = false;
+    private boolean iteratorReturned = false;
+
+    JinixDirectoryStream(JinixFileSystem fs, Path dir, DirectoryStream.Filter<? super Path> filter,
+                         RemoteDirectoryCursor cursor) {
+        this.fs = fs;
+        this.dir = dir;
+        this.filter = filter;
+        this.cursor = cursor;
+    }
+
+    JinixDirectoryStream(JinixFileSystem fs, Path dir, DirectoryStream.Filter<? super Path> filter,
+                         DirectoryFileData[] listing) {
+        this(fs, dir, filter, (RemoteDirectoryCursor) null);
+        this.listing = listing;
+    }
+
+    @Override
+    public Iterator<Path> iterator() {
+        claimIterator();
+        return new Iterator<Path>() {
+            Path[] page = new Path[0];
+            int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (i >= page.length) {
+                    page = nextFilteredPage();
+                    i = 0;
+                    if (page == null) {
+                        page = new Path[0];
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Path next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page[i++];
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<Path> spliterator() {
+        claimIterator();
+        return new PageSpliterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Path> action) {
+        for (Path p : this) {
+            action.accept(p);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (nextPage != null) {
+                nextPage.cancel(false);
+                nextPage = null;
+            }
+        }
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+
+    private synchronized void claimIterator() {
+        if (closed) {
+            throw new IllegalStateException("DirectoryStream is already closed");
+        }
+        if (iteratorReturned) {
+            throw new IllegalStateException("DirectoryStream iterator already returned");
+        }
+        iteratorReturned = true;
+    }
+
+    /**
+     * Get the next page of entries that are accepted by the filter.
+     *
+     * @return the next page, which may be empty if the filter rejected every entry, or null at the end of the
+     *         directory
+     */
+    private Path[] nextFilteredPage() {
+        DirectoryFileData[] entries = nextPage();
+        if (entries == null) {
+            return null;
+        }
+        Path[] page = new Path[entries.length];
+        int n = 0;
+        for (DirectoryFileData dfd : entries) {
+            JinixPath entry = (JinixPath) dir.resolve(new JinixPath(fs, dfd.name));
+            entry.setPrefetchedAttributes(JinixAttributeCache.prefetched(dfd));
+            try {
+                if (filter == null || filter.accept(entry)) {
+                    page[n++] = entry;
+                }
+            } catch (IOException e) {
+                throw new DirectoryIteratorException(e);
+            }
+        }
+        if (n < page.length) {
+            Path[] filtered = new Path[n];
+            System.arraycopy(page, 0, filtered, 0, n);
+            page = filtered;
+        }
+        return page;
+    }
+
+    private synchronized DirectoryFileData[] nextPage() {
+        if (closed || exhausted) {
+            return null;
+        }
+
+        if (cursor == null) {
+            exhausted = true;
+            return listing;
+        }
+
+        DirectoryFileData[] page;
+        try {
+            if (nextPage != null) {
+                page = nextPage.join();
+                nextPage = null;
+            } else {
+                page = cursor.next(PAGE_SIZE);
+            }
+        } catch (CompletionException e) {
+            throw new DirectoryIteratorException(
+                    (e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause())));
+        } catch (RemoteException e) {
+            throw new DirectoryIteratorException(e);
+        }
+
+        if (page == null) {
+            exhausted = true;
+            return null;
+        }
+        if (page.length == PAGE_SIZE) {
+            // Probably more to come, so start fetching the next page while this one is consumed.
+            nextPage = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cursor.next(PAGE_SIZE);
+                } catch (RemoteException e) {
+                    throw new CompletionException(e);
+                }
+            }, JinixAsynchronousFileChannel.getSharedExecutor());
+        }
+        return page;
+    }
+
+    /**
+     * Splits off the entries already fetched, or the next page, as an array spliterator.
+     */
+    private class PageSpliterator implements Spliterator<Path> {
+        private Path[] page = new Path[0];
+        private int i = 0;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Path> action) {
+            while (i >= page.length) {
+                if (!fetch()) {
+                    return false;
+                }
+            }
+            action.accept(page[i++]);
+            return true;
+        }
+
+        @Override
+        public Spliterator<Path> trySplit() {
+            while (i >= page.length) {
+                if (!fetch()) {
+                    return null;
+                }
+            }
+            Spliterator<Path> prefix = Spliterators.spliterator(page, i, page.length, characteristics());
+            page = new Path[0];
+            i = 0;
+            return prefix;
+        }
+
+        private boolean fetch() {
+            Path[] p = nextFilteredPage();
+            if (p == null) {
+                return false;
+            }
+            page = p;
+            i = 0;
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+}
@@ -38,8 +38,12 @@ public class JinixFileAttributeView implements BasicFileAttributeView {
                     IS_OTHER_NAME);
 
     Path p;
+    JinixAttributeCache.Entry prefetched;
 
     JinixFileAttributeView(Path path) {
+        if (path instanceof JinixPath) {
+            prefetched = ((JinixPath) path).getPrefetchedAttributes();
+        }
         p = path.toAbsolutePath().normalize();
     }
 
@@ -143,15 +147,11 @@ public class JinixFileAttributeView implements BasicFileAttributeView {
 
     @Override
     public JinixFileAttributes readAttributes() throws IOException {
-        Object lookup = JinixRuntime.getRuntime().lookup(p.toAbsolutePath().toString());
-
-        if (lookup instanceof RemoteFileHandle) {
-            return new JinixFileAttributes(((RemoteFileHandle) lookup).getAttributes());
-        }
+        JinixAttributeCache.Entry e = (prefetched != null && prefetched.isLive() ?
+                prefetched : JinixAttributeCache.get(p.toString()));
 
-        if (lookup instanceof FileNameSpace) {
-            return new JinixFileAttributes(((FileNameSpace) lookup).getParent().
-                    getFileAttributes(((FileNameSpace) lookup).getPathWithinParent()));
+        if (e != null && e.attributes != null) {
+            return new JinixFileAttributes(e.attributes);
         }
 
         // Default attributes for anything else
@@ -185,6 +185,8 @@ public class JinixFileAttributeView implements BasicFileAttributeView {
             if (lookup instanceof FileNameSpace) {
                 ((FileNameSpace) lookup).getParent().setFileAttributes(((FileNameSpace) lookup).getPathWithinParent(), dfd);
             }
+            JinixAttributeCache.invalidate(p.toString());
+            prefetched = null;
         }
     }
 }
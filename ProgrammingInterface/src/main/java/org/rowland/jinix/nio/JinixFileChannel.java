@@ -1,5 +1,6 @@
 package org.rowland.jinix.nio;
 
+import org.rowland.jinix.io.FileDataChannel;
 import org.rowland.jinix.io.JinixFileDescriptor;
 import org.rowland.jinix.lang.JinixRuntime;
 import org.rowland.jinix.naming.RemoteFileAccessor;
@@ -11,6 +12,8 @@ import java.nio.channels.*;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileAttribute;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -18,6 +21,10 @@ import java.util.Set;
  */
 public class JinixFileChannel extends FileChannel {
 
+    // Largest chunk moved per call when a transfer has to pass through this process
+    private static final int TRANSFER_SIZE = 64 * 1024;
+
+    private JinixFileDescriptor fd;
     private RemoteFileAccessor raf;
 
     // File access mode options(immutable)
@@ -27,25 +34,36 @@ public class JinixFileChannel extends FileChannel {
     // Lock for operations involving position and size
     private final Object positionLock = new Object();
 
+    // Locks acquired through this channel, released on close
+    private final List<JinixFileLockImpl> locks = new ArrayList<>();
+
+    // Arrays reused by writes from buffers that cannot be sent as is
+    private final JinixBufferPool bufferPool = new JinixBufferPool();
+
+    // READ_WRITE mappings, written back on force() and close. Regions whose buffers were dropped are removed.
+    private final List<JinixMappedRegion> mappedRegions = new ArrayList<>();
+
     public static JinixFileChannel open(JinixFileDescriptor fd, Set<? extends OpenOption> options, Object parent)
         throws IOException {
         // Throws FileAlreadyExistsException with CREATE_NEW option
-        return new JinixFileChannel(fd.getHandle(), options, parent);
+        return new JinixFileChannel(fd, fd.getHandle(), options, parent);
     }
 
     /**
      * Get a JinixFileChannel from an existing filedescriptor. The channel will be open with the same
      * options that created the filedescriptor.
      *
+     * @param fd the file descriptor providing the RemoteFileAccessor, and its data channel
      * @param fc the RemoteFileAccessor underlying channel
      * @param options the options that describe the mode in which the underlying RemoteFileAccessor was opened.
      * @param parent the object that called this method and provided the RemoteFileAccessor
      * @return
      * @throws IOException
      */
-    private JinixFileChannel(RemoteFileAccessor fc, Set<? extends OpenOption> options, Object parent)
-            throws IOException {
+    private JinixFileChannel(JinixFileDescriptor fd, RemoteFileAccessor fc, Set<? extends OpenOption> options,
+                             Object parent) throws IOException {
         super();
+        this.fd = fd;
         raf = fc;
         this.options = options;
         this.parent = parent;
@@ -60,6 +78,11 @@ public class JinixFileChannel extends FileChannel {
         synchronized (positionLock) {
 
             int len = dst.remaining();
+            FileDataChannel dc = (len >= FileDataChannel.THRESHOLD ? fd.getDataChannel() : null);
+            if (dc != null) {
+                // The data channel reads straight into dst
+                return dc.read(JinixRuntime.getRuntime().getProcessGroupId(), dst);
+            }
             byte[] b = raf.read(JinixRuntime.getRuntime().getProcessGroupId(), len);
             if (b == null) {
                 return -1;
@@ -75,10 +98,26 @@ public class JinixFileChannel extends FileChannel {
         if (!options.contains(StandardOpenOption.WRITE)) {
             throw new NonWritableChannelException();
         }
-        byte[] b = new byte[src.remaining()];
-        src.get(b);
-        raf.write(JinixRuntime.getRuntime().getProcessGroupId(), b);
-        return b.length;
+        FileDataChannel dc = (src.remaining() >= FileDataChannel.THRESHOLD ? fd.getDataChannel() : null);
+        int n;
+        if (dc != null) {
+            // The data channel writes straight from src
+            n = dc.write(JinixRuntime.getRuntime().getProcessGroupId(), src);
+        } else {
+            int start = src.position();
+            byte[] b = takeBytes(src);
+            try {
+                raf.write(JinixRuntime.getRuntime().getProcessGroupId(), b);
+                n = b.length;
+            } catch (IOException | RuntimeException e) {
+                src.position(start); // Nothing was written, so src must not appear consumed
+                throw e;
+            } finally {
+                releaseBytes(b, src);
+            }
+        }
+        fd.attributesChanged();
+        return n;
     }
 
     @Override
@@ -109,6 +148,7 @@ public class JinixFileChannel extends FileChannel {
             return this;
         }
         raf.setLength(size);
+        fd.attributesChanged();
         return this;
     }
 
@@ -121,21 +161,27 @@ public class JinixFileChannel extends FileChannel {
         if (!options.contains(StandardOpenOption.READ)) {
             throw new NonReadableChannelException();
         }
-        int count = offset + length;
-        int i = offset;
-        long totalBytes = 0;
-        int len = dsts[i].limit();
-        byte[] b = raf.read(JinixRuntime.getRuntime().getProcessGroupId(), len);
-        if (b == null) {
-            return -1;
+        int[] lengths = new int[length];
+        long total = 0;
+        for (int i = 0; i < length; i++) {
+            lengths[i] = dsts[offset + i].remaining();
+            total += lengths[i];
+        }
+        if (total == 0) {
+            return 0; // Some servers answer a read of 0 bytes with null, which would be taken for end of file
         }
-        while (i < count && b != null) {
-            dsts[i++].put(b);
-            len = dsts[i].limit();
-            totalBytes += b.length;
-            b = raf.read(JinixRuntime.getRuntime().getProcessGroupId(), len);
+        synchronized (positionLock) {
+            byte[][] b = raf.readv(JinixRuntime.getRuntime().getProcessGroupId(), lengths);
+            if (b == null) {
+                return -1;
+            }
+            long totalBytes = 0;
+            for (int i = 0; i < b.length; i++) {
+                dsts[offset + i].put(b[i]);
+                totalBytes += b[i].length;
+            }
+            return totalBytes;
         }
-        return totalBytes;
     }
 
     @Override
@@ -145,63 +191,294 @@ public class JinixFileChannel extends FileChannel {
         ensureOpen();
         if (!options.contains(StandardOpenOption.WRITE))
             throw new NonWritableChannelException();
-        int count = offset + length;
-        int i = offset;
-        long bytesWritten = 0;
-        while (i < count) {
-            byte[] b = new byte[srcs[i].remaining()];
-            srcs[i++].get(b);
-            bytesWritten += raf.write(JinixRuntime.getRuntime().getProcessGroupId(), b);
+        byte[][] b = new byte[length][];
+        for (int i = 0; i < length; i++) {
+            b[i] = new byte[srcs[offset + i].remaining()];
+            srcs[offset + i].get(b[i]);
         }
-        return bytesWritten;
+        long n = raf.writev(JinixRuntime.getRuntime().getProcessGroupId(), b);
+        fd.attributesChanged();
+        return n;
     }
 
     @Override
     public void force(boolean metaData) throws IOException {
         ensureOpen();
+        writeBackMappedRegions();
         raf.force(metaData);
+        fd.attributesChanged();
     }
 
     @Override
     public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
-        return 0;
+        ensureOpen();
+        if (!target.isOpen())
+            throw new ClosedChannelException();
+        if (!options.contains(StandardOpenOption.READ))
+            throw new NonReadableChannelException();
+        if ((position < 0) || (count < 0))
+            throw new IllegalArgumentException();
+
+        int pgid = JinixRuntime.getRuntime().getProcessGroupId();
+
+        // Between two Jinix files the servers move the bytes themselves.
+        if (target instanceof JinixFileChannel) {
+            JinixFileChannel targetChannel = (JinixFileChannel) target;
+            if (!targetChannel.options.contains(StandardOpenOption.WRITE))
+                throw new NonWritableChannelException();
+            return raf.transferTo(pgid, position, count, targetChannel.raf);
+        }
+
+        long transferred = 0;
+        while (transferred < count) {
+            byte[] b = raf.readAt(pgid, position + transferred, (int) Math.min(count - transferred, TRANSFER_SIZE));
+            if (b == null) {
+                break;
+            }
+            ByteBuffer bb = ByteBuffer.wrap(b);
+            int n = target.write(bb);
+            transferred += n;
+            if (n < b.length) {
+                break;
+            }
+        }
+        return transferred;
     }
 
     @Override
     public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
-        return 0;
+        ensureOpen();
+        if (!src.isOpen())
+            throw new ClosedChannelException();
+        if (!options.contains(StandardOpenOption.WRITE))
+            throw new NonWritableChannelException();
+        if ((position < 0) || (count < 0))
+            throw new IllegalArgumentException();
+        if (position > size())
+            return 0;
+
+        int pgid = JinixRuntime.getRuntime().getProcessGroupId();
+
+        if (src instanceof JinixFileChannel) {
+            JinixFileChannel srcChannel = (JinixFileChannel) src;
+            if (!srcChannel.options.contains(StandardOpenOption.READ))
+                throw new NonReadableChannelException();
+            long n = raf.transferFrom(pgid, srcChannel.raf, position, count);
+            fd.attributesChanged();
+            return n;
+        }
+
+        long transferred = 0;
+        ByteBuffer bb = ByteBuffer.allocate((int) Math.min(count, TRANSFER_SIZE));
+        while (transferred < count) {
+            bb.clear();
+            bb.limit((int) Math.min(count - transferred, bb.capacity()));
+            int n = src.read(bb);
+            if (n <= 0) {
+                break;
+            }
+            bb.flip();
+            byte[] b = new byte[bb.remaining()];
+            bb.get(b);
+            raf.writeAt(pgid, position + transferred, b);
+            transferred += n;
+        }
+        fd.attributesChanged();
+        return transferred;
     }
 
     @Override
     public int read(ByteBuffer dst, long position) throws IOException {
-        position(position);
-        return read(dst);
+        if (dst == null)
+            throw new NullPointerException();
+        if (position < 0)
+            throw new IllegalArgumentException("Negative position");
+        ensureOpen();
+        if (!options.contains(StandardOpenOption.READ)) {
+            throw new NonReadableChannelException();
+        }
+
+        // Positional reads do not use the file pointer, so they do not need the positionLock.
+        byte[] b = raf.readAt(JinixRuntime.getRuntime().getProcessGroupId(), position, dst.remaining());
+        if (b == null) {
+            return -1;
+        }
+        dst.put(b);
+        return b.length;
     }
 
     @Override
     public int write(ByteBuffer src, long position) throws IOException {
-        position(position);
-        return write(src);
+        if (src == null)
+            throw new NullPointerException();
+        if (position < 0)
+            throw new IllegalArgumentException("Negative position");
+        ensureOpen();
+        if (!options.contains(StandardOpenOption.WRITE)) {
+            throw new NonWritableChannelException();
+        }
+        int start = src.position();
+        byte[] b = takeBytes(src);
+        int n;
+        try {
+            n = raf.writeAt(JinixRuntime.getRuntime().getProcessGroupId(), position, b);
+        } catch (IOException | RuntimeException e) {
+            src.position(start); // Nothing was written, so src must not appear consumed
+            throw e;
+        } finally {
+            releaseBytes(b, src);
+        }
+        src.position(start + n); // Only the bytes written are consumed
+        fd.attributesChanged();
+        return n;
     }
 
+    /**
+     * Map a region of the file. Only callers that hold JinixNativeAccessPermission can map the file server's host
+     * file directly. Every other caller gets an emulated mapping, a private copy of the region that is limited in
+     * size and is written back to the file server on force() and close(). See JinixMappedRegion.
+     */
     @Override
     public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
-        return null;
+        ensureOpen();
+        if (mode == null)
+            throw new NullPointerException("Mode is null");
+        if (position < 0L)
+            throw new IllegalArgumentException("Negative position");
+        if (size < 0L)
+            throw new IllegalArgumentException("Negative size");
+        if (position + size < 0)
+            throw new IllegalArgumentException("Position + size overflow");
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Size exceeds Integer.MAX_VALUE");
+        if (!options.contains(StandardOpenOption.READ))
+            throw new NonReadableChannelException();
+        if (mode != MapMode.READ_ONLY && !options.contains(StandardOpenOption.WRITE))
+            throw new NonWritableChannelException();
+
+        JinixMappedRegion region;
+        String hostPath = null;
+        if (JinixMappedRegion.isDirectMappingPermitted()) {
+            hostPath = raf.negotiateMapping(JinixRuntime.getRuntime().getProcessGroupId(),
+                    mode != MapMode.READ_ONLY);
+        }
+        if (hostPath == null) {
+            JinixMappedRegion.checkEmulatedSize(size);
+        }
+
+        // A READ_WRITE mapping beyond the end of file extends the file, as it does for a native FileChannel.
+        if (mode == MapMode.READ_WRITE && size() < position + size) {
+            raf.setLength(position + size);
+        }
+
+        if (hostPath != null) {
+            region = JinixMappedRegion.mapDirect(raf, hostPath, mode, position, size);
+        } else {
+            region = JinixMappedRegion.mapEmulated(raf, mode, position, (int) size);
+        }
+        MappedByteBuffer mbb = region.takeBuffer();
+        if (mode == MapMode.READ_WRITE) {
+            synchronized (mappedRegions) {
+                mappedRegions.removeIf(JinixMappedRegion::isDiscarded);
+                mappedRegions.add(region);
+            }
+        }
+        return mbb;
     }
 
     @Override
     public FileLock lock(long position, long size, boolean shared) throws IOException {
-        return new JinixFileLockImpl(this, position, size, shared);
+        return acquireLock(position, size, shared, true);
     }
 
     @Override
     public FileLock tryLock(long position, long size, boolean shared) throws IOException {
-        return new JinixFileLockImpl(this, position, size, shared);
+        return acquireLock(position, size, shared, false);
+    }
+
+    private FileLock acquireLock(long position, long size, boolean shared, boolean wait) throws IOException {
+        ensureOpen();
+        if ((position < 0) || (size < 0))
+            throw new IllegalArgumentException();
+        if (shared && !options.contains(StandardOpenOption.READ))
+            throw new NonReadableChannelException();
+        if (!shared && !options.contains(StandardOpenOption.WRITE))
+            throw new NonWritableChannelException();
+
+        JinixFileLockImpl fl = JinixFileLockImpl.acquire(this, raf, position, size, shared, wait);
+        if (fl == null) {
+            return null;
+        }
+        synchronized (locks) {
+            locks.add(fl);
+        }
+        return fl;
     }
 
     @Override
     protected void implCloseChannel() throws IOException {
-        raf.close();
+        try {
+            writeBackMappedRegions();
+            releaseLocks();
+        } finally {
+            raf.close();
+        }
+    }
+
+    void removeLock(JinixFileLockImpl fl) {
+        synchronized (locks) {
+            locks.remove(fl);
+        }
+    }
+
+    /**
+     * Release all the locks acquired through this channel. Called when the channel is closed.
+     */
+    private void releaseLocks() throws IOException {
+        List<JinixFileLockImpl> acquiredLocks;
+        synchronized (locks) {
+            acquiredLocks = new ArrayList<>(locks);
+            locks.clear();
+        }
+        for (JinixFileLockImpl fl : acquiredLocks) {
+            fl.invalidate();
+        }
+    }
+
+    /**
+     * Write changes made through READ_WRITE mappings back to the file server. Changes made to an emulated mapping
+     * after the channel is closed are not written back.
+     */
+    private void writeBackMappedRegions() throws IOException {
+        List<JinixMappedRegion> regions;
+        synchronized (mappedRegions) {
+            mappedRegions.removeIf(JinixMappedRegion::isDiscarded);
+            regions = new ArrayList<>(mappedRegions);
+        }
+        for (JinixMappedRegion region : regions) {
+            region.writeBack();
+        }
+    }
+
+    /**
+     * Get the remaining bytes of a buffer as an array for an RMI call. A heap buffer that wraps an entire array is
+     * sent as is. Otherwise the bytes are copied into an array from the pool.
+     */
+    private byte[] takeBytes(ByteBuffer src) {
+        int len = src.remaining();
+        if (src.hasArray() && src.arrayOffset() == 0 && src.position() == 0 && len == src.array().length) {
+            src.position(len);
+            return src.array();
+        }
+        byte[] b = bufferPool.acquire(len);
+        src.get(b);
+        return b;
+    }
+
+    private void releaseBytes(byte[] b, ByteBuffer src) {
+        if (!src.hasArray() || b != src.array()) {
+            bufferPool.release(b);
+        }
     }
 
     private void ensureOpen() throws IOException {
@@ -1,19 +1,106 @@
 package org.rowland.jinix.nio;
 
+import org.rowland.jinix.io.FileLockManager;
+import org.rowland.jinix.lang.JinixRuntime;
+import org.rowland.jinix.naming.FileNameSpace;
+import org.rowland.jinix.naming.RemoteFileAccessor;
+import org.rowland.jinix.naming.RemoteFileHandle;
+
 import java.io.IOException;
 import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * A byte range lock held in the lock manager of a FileNameSpace. When the FileNameSpace of a file does not support
+ * locking, the lock is held in a lock table local to this process instead, and a warning is logged once. A local lock
+ * excludes overlapping locks taken in this process, but not locks taken by other processes. Set the system property
+ * jinix.io.strictFileLocking to true to refuse such locks with an IOException instead.
+ */
 public class JinixFileLockImpl extends FileLock {
 
-    protected JinixFileLockImpl(FileChannel channel, long position, long size, boolean shared) {
+    private static final Logger logger = Logger.getLogger("jinix.io");
+    private static final boolean STRICT_LOCKING = Boolean.getBoolean("jinix.io.strictFileLocking");
+    private static final FileLockManager localLockManager = new FileLockManager();
+    private static volatile boolean localLockWarningLogged = false;
+
+    private final FileNameSpace fileNameSpace; // null for a lock in the local lock table
+    private final String filePathName;
+    private volatile boolean valid = true;
+
+    protected JinixFileLockImpl(FileChannel channel, FileNameSpace fileNameSpace, String filePathName,
+                                long position, long size, boolean shared) {
         super(channel, position, size, shared);
+        this.fileNameSpace = fileNameSpace;
+        this.filePathName = filePathName;
     }
 
-    protected JinixFileLockImpl(AsynchronousFileChannel channel, long position, long size, boolean shared) {
+    protected JinixFileLockImpl(AsynchronousFileChannel channel, FileNameSpace fileNameSpace, String filePathName,
+                                long position, long size, boolean shared) {
         super(channel, position, size, shared);
+        this.fileNameSpace = fileNameSpace;
+        this.filePathName = filePathName;
+    }
+
+    /**
+     * Acquire a lock on the file opened by a RemoteFileAccessor for a JinixFileChannel or a
+     * JinixAsynchronousFileChannel.
+     *
+     * @param channel the channel acquiring the lock
+     * @param raf the RemoteFileAccessor of the channel
+     * @param position the start of the locked range
+     * @param size the size of the locked range
+     * @param shared true for a shared lock, false for an exclusive lock
+     * @param wait true to block until the lock can be acquired
+     * @return the lock, or null if wait is false and a conflicting lock is held
+     * @throws IOException
+     */
+    static JinixFileLockImpl acquire(Channel channel, RemoteFileAccessor raf, long position, long size,
+                                     boolean shared, boolean wait) throws IOException {
+        int pid = JinixRuntime.getRuntime().getPid();
+        RemoteFileHandle fh = raf.getRemoteFileHandle();
+        String localKey;
+        if (fh != null) {
+            FileNameSpace fns = fh.getParent();
+            try {
+                if (!fns.lock(pid, fh.getPath(), position, size, shared, wait)) {
+                    return null;
+                }
+                return newLock(channel, fns, fh.getPath(), position, size, shared);
+            } catch (UnsupportedOperationException e) {
+                if (STRICT_LOCKING) {
+                    throw new IOException("File locking is not supported by the file system of: " + fh.getPath(), e);
+                }
+            }
+            localKey = fns.getURI() + fh.getPath();
+        } else {
+            if (STRICT_LOCKING) {
+                throw new IOException("File locking is not supported for this file");
+            }
+            localKey = "#" + raf.hashCode(); // Pipes and terminals have no path. The stub hash identifies the accessor.
+        }
+
+        if (!localLockWarningLogged) {
+            localLockWarningLogged = true;
+            logger.log(Level.WARNING, "File system does not support locking. Locks only exclude this process: " +
+                    (fh != null ? fh.getPath() : "(no path)"));
+        }
+        if (!localLockManager.lock(pid, localKey, position, size, shared, wait)) {
+            return null;
+        }
+        return newLock(channel, null, localKey, position, size, shared);
+    }
+
+    private static JinixFileLockImpl newLock(Channel channel, FileNameSpace fns, String filePathName,
+                                             long position, long size, boolean shared) {
+        if (channel instanceof FileChannel) {
+            return new JinixFileLockImpl((FileChannel) channel, fns, filePathName, position, size, shared);
+        }
+        return new JinixFileLockImpl((AsynchronousFileChannel) channel, fns, filePathName, position, size, shared);
     }
 
     @Override
@@ -23,11 +110,38 @@ public class JinixFileLockImpl extends FileLock {
 
     @Override
     public boolean isValid() {
-        return true;
+        return valid && acquiredBy().isOpen();
     }
 
     @Override
-    public void release() throws IOException {
+    public synchronized void release() throws IOException {
+        if (!valid) {
+            return;
+        }
+        if (!acquiredBy().isOpen()) {
+            throw new ClosedChannelException();
+        }
+        invalidate();
+        if (acquiredBy() instanceof JinixFileChannel) {
+            ((JinixFileChannel) acquiredBy()).removeLock(this);
+        } else if (acquiredBy() instanceof JinixAsynchronousFileChannel) {
+            ((JinixAsynchronousFileChannel) acquiredBy()).removeLock(this);
+        }
+    }
 
+    /**
+     * Release the lock in the FileNameSpace, or in the local lock table. Called by release() and when the channel that acquired the lock is
+     * closed.
+     */
+    synchronized void invalidate() throws IOException {
+        if (!valid) {
+            return;
+        }
+        valid = false;
+        if (fileNameSpace != null) {
+            fileNameSpace.unlock(JinixRuntime.getRuntime().getPid(), filePathName, position(), size());
+        } else {
+            localLockManager.unlock(JinixRuntime.getRuntime().getPid(), filePathName, position(), size());
+        }
     }
 }
@@ -327,14 +327,14 @@ public class JinixFileSystem extends FileSystem {
     @Override
     public WatchService newWatchService() throws IOException {
         if (defaultFileSystem == null) {
-            return null;
+            return new JinixWatchService(this);
         }
         SecurityManager securityManager = System.getSecurityManager();
         if (securityManager != null) {
             try {
                 securityManager.checkPermission(new JinixNativeAccessPermission());
             } catch (AccessControlException e) {
-                return null;
+                return new JinixWatchService(this);
             }
         }
 
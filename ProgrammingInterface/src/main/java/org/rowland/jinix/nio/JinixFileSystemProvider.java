@@ -6,8 +6,10 @@ import org.rowland.jinix.lang.JinixRuntime;
 import org.rowland.jinix.naming.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.*;
@@ -16,7 +18,9 @@ import java.nio.file.spi.FileSystemProvider;
 import java.rmi.RemoteException;
 import java.security.AccessControlException;
 import java.util.*;
-import java.util.function.Consumer;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Created by rsmith on 1/7/2017.
@@ -140,7 +144,7 @@ public class JinixFileSystemProvider extends FileSystemProvider {
                 }
             }
 
-            JinixFileDescriptor fd = new JinixFileDescriptor(open(path, options));
+            JinixFileDescriptor fd = openFileDescriptor(path, options);
             return JinixFileChannel.open(fd, options, null);
         }
         SecurityManager securityManager = System.getSecurityManager();
@@ -156,7 +160,7 @@ public class JinixFileSystemProvider extends FileSystemProvider {
                         options = EnumSet.of(StandardOpenOption.READ);
                     }
                 }
-                JinixFileDescriptor fd = new JinixFileDescriptor(open(path, options));
+                JinixFileDescriptor fd = openFileDescriptor(path, options);
                 return JinixFileChannel.open(fd, options, null);
             }
         }
@@ -164,6 +168,41 @@ public class JinixFileSystemProvider extends FileSystemProvider {
         return defaultFileSystemProvider.newFileChannel(path, options, attrs);
     }
 
+    @Override
+    public AsynchronousFileChannel newAsynchronousFileChannel(Path path, Set<? extends OpenOption> options,
+                                                              ExecutorService executor, FileAttribute<?>... attrs)
+            throws IOException {
+        if (defaultFileSystemProvider == null) {
+            return newAsynchronousFileChannelInternal(path, options, executor);
+        }
+        SecurityManager securityManager = System.getSecurityManager();
+        if (securityManager != null) {
+            try {
+                securityManager.checkPermission(new JinixNativeAccessPermission());
+            } catch (AccessControlException e) {
+                return newAsynchronousFileChannelInternal(path, options, executor);
+            }
+        }
+
+        return defaultFileSystemProvider.newAsynchronousFileChannel(path, options, executor, attrs);
+    }
+
+    private AsynchronousFileChannel newAsynchronousFileChannelInternal(Path path, Set<? extends OpenOption> options,
+                                                                       ExecutorService executor)
+            throws IOException {
+        // default is reading; append is not allowed
+        if (options.contains(StandardOpenOption.APPEND)) {
+            throw new UnsupportedOperationException("APPEND not allowed");
+        }
+        if (!options.contains(StandardOpenOption.READ) && !options.contains(StandardOpenOption.WRITE)) {
+            Set<OpenOption> readOptions = new HashSet<>(options);
+            readOptions.add(StandardOpenOption.READ);
+            options = readOptions;
+        }
+        JinixFileDescriptor fd = openFileDescriptor(path, options);
+        return JinixAsynchronousFileChannel.open(fd, options, executor);
+    }
+
     @Override
     public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter)
             throws IOException {
@@ -184,94 +223,103 @@ public class JinixFileSystemProvider extends FileSystemProvider {
 
     private DirectoryStream<Path> newDirectoryStreamInternal(Path dir, DirectoryStream.Filter<? super Path> filter)
             throws IOException {
-        Object lookup = JinixRuntime.getRuntime().lookup(
+        AttributedLookupResult result = JinixRuntime.getRuntime().lookupWithAttributes(
                 dir.toAbsolutePath().normalize().toString());
-        String[] dirList = null;
+        Object lookup = (result != null ? result.object : null);
+        FileNameSpace fns = null;
+        String directoryPathName = null;
         if (lookup instanceof RemoteFileHandle &&
-                ((RemoteFileHandle) lookup).getAttributes().type == DirectoryFileData.FileType.DIRECTORY ) {
-            dirList = ((RemoteFileHandle) lookup).getParent().list(((RemoteFileHandle) lookup).getPath());
+                result.attributes.type == DirectoryFileData.FileType.DIRECTORY ) {
+            fns = ((RemoteFileHandle) lookup).getParent();
+            directoryPathName = ((RemoteFileHandle) lookup).getPath();
         }
         if (lookup instanceof FileNameSpace) {
-            dirList = ((FileNameSpace) lookup).list("/");
+            fns = (FileNameSpace) lookup;
+            directoryPathName = "/";
         }
 
-        if (dirList != null) {
-            String[] finalDirList = dirList;
-            return new DirectoryStream<Path>() {
-                int i = 0;
-                boolean closed = false;
-                boolean iteratorReturned = false;
+        if (fns != null) {
+            RemoteDirectoryCursor cursor = fns.openDirectoryCursor(directoryPathName);
+            if (cursor != null) {
+                return new JinixDirectoryStream(jinixFileSystem, dir, filter, cursor);
+            }
+            DirectoryFileData[] dirList = fns.listWithAttributes(directoryPathName);
+            if (dirList != null) {
+                return new JinixDirectoryStream(jinixFileSystem, dir, filter, dirList);
+            }
+        }
+        throw new NotDirectoryException(dir.toAbsolutePath().toString());
+    }
+    /**
+     * Walk a file tree inside the server that holds it, with FileNameSpace.walk(). See JinixFiles.find().
+     *
+     * @param start the starting file
+     * @param maxDepth the maximum number of directory levels to visit
+     * @param filter the filter that returned paths must match, or null to return every path
+     * @return a stream of the matching paths, or null if the tree cannot be walked in the server
+     * @throws IOException
+     */
+    public Stream<Path> walk(Path start, int maxDepth, WalkFilter filter) throws IOException {
+        if (defaultFileSystemProvider == null) {
+            return walkInternal(start, maxDepth, filter);
+        }
+        SecurityManager securityManager = System.getSecurityManager();
+        if (securityManager != null) {
+            try {
+                securityManager.checkPermission(new JinixNativeAccessPermission());
+            } catch (AccessControlException e) {
+                return walkInternal(start, maxDepth, filter);
+            }
+        }
 
-                @Override
-                public Iterator<Path> iterator() {
-                    if (closed) {
-                        throw new IllegalStateException("DirectoryStream is already closed");
-                    }
-                    if (iteratorReturned) {
-                        throw new IllegalStateException("DirectoryStream iterator already returned");
-                    }
-                    iteratorReturned = true;
-                    return new Iterator<Path>() {
-                        Path p = null;
-
-                        @Override
-                        public boolean hasNext() {
-                            try {
-                                if (p != null) {
-                                    return true;
-                                }
-                                if (i >= finalDirList.length) {
-                                    return false;
-                                }
-                                Path next = new JinixPath(jinixFileSystem, finalDirList[i]);
-                                while (!filter.accept(next)) {
-                                    if (++i < finalDirList.length) {
-                                        next = new JinixPath(jinixFileSystem, finalDirList[i]);
-                                        continue;
-                                    }
-                                    p = null;
-                                    return false;
-                                }
-                                p = dir.resolve(next);
-                                return true;
-                            } catch (IOException e1) {
-                                throw new RuntimeException(e1);
-                            }
-                        }
-
-                        @Override
-                        public Path next() {
-                            if (!hasNext()) {
-                                throw new NoSuchElementException();
-                            }
-                            Path rtrn = p;
-                            p = null;
-                            i++;
-                            return rtrn;
-                        }
-                    };
-                }
+        return null;
+    }
 
-                @Override
-                public void close() throws IOException {
-                    closed = true;
-                }
+    private Stream<Path> walkInternal(Path start, int maxDepth, WalkFilter filter) throws IOException {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("'maxDepth' is negative");
+        }
+        AttributedLookupResult result = JinixRuntime.getRuntime().lookupWithAttributes(
+                start.toAbsolutePath().normalize().toString());
+        if (result == null) {
+            throw new NoSuchFileException(start.toString());
+        }
 
-                @Override
-                public void forEach(Consumer<? super Path> action) {
-                    for (Path p : this) {
-                        action.accept(p);
-                    }
-                }
+        Path startName = start.getFileName();
+        Stream<Path> startStream = (filter == null || (result.attributes != null &&
+                filter.accept((startName != null ? startName.toString() : ""), result.attributes)) ?
+                Stream.of(start) : Stream.empty());
+        if (maxDepth == 0) {
+            return startStream;
+        }
 
-                @Override
-                public Spliterator<Path> spliterator() {
-                    throw new UnsupportedOperationException();
-                }
-            };
+        RemoteDirectoryCursor cursor;
+        if (result.object instanceof RemoteFileHandle) {
+            if (result.attributes.type != DirectoryFileData.FileType.DIRECTORY) {
+                return startStream;
+            }
+            cursor = ((RemoteFileHandle) result.object).getParent().walk(
+                    ((RemoteFileHandle) result.object).getPath(), maxDepth, filter);
+        } else if (result.object instanceof FileNameSpace) {
+            cursor = ((FileNameSpace) result.object).walk("/", maxDepth, filter);
+        } else {
+            return startStream;
         }
-        throw new NotDirectoryException(dir.toAbsolutePath().toString());
+        if (cursor == null) {
+            return null;
+        }
+
+        JinixDirectoryStream ds = new JinixDirectoryStream(jinixFileSystem, start, null, cursor);
+        return Stream.concat(startStream, StreamSupport.stream(ds.spliterator(), false))
+                .onClose(() -> {
+                    try {
+                        ds.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
     }
+
     @Override
     public void createDirectory(Path dir, FileAttribute<?>[] attrs) throws IOException {
         if (defaultFileSystemProvider == null) {
@@ -296,10 +344,12 @@ public class JinixFileSystemProvider extends FileSystemProvider {
 
     private void createDirectoryInternal(Path dir, FileAttribute<?>[] attrs) throws IOException {
         String dirString = dir.toAbsolutePath().normalize().toString();
+        JinixAttributeCache.invalidate(dirString);
 
         dirString = dirString.substring(0, dirString.lastIndexOf('/'));
-        Object lookup = JinixRuntime.getRuntime().lookup(dirString);
-        if (lookup instanceof RemoteFileHandle && ((RemoteFileHandle) lookup).getAttributes().type == DirectoryFileData.FileType.DIRECTORY ) {
+        AttributedLookupResult result = JinixRuntime.getRuntime().lookupWithAttributes(dirString);
+        Object lookup = (result != null ? result.object : null);
+        if (lookup instanceof RemoteFileHandle && result.attributes.type == DirectoryFileData.FileType.DIRECTORY ) {
             ((RemoteFileHandle) lookup).getParent().createDirectory(((RemoteFileHandle) lookup).getPath(), dir.getFileName().toString());
             return;
         }
@@ -335,9 +385,11 @@ public class JinixFileSystemProvider extends FileSystemProvider {
     }
 
     private void deleteInternal(Path path) throws IOException {
-        Object lookup = JinixRuntime.getRuntime().lookup(path.toAbsolutePath().normalize().toString());
+        String pathString = path.toAbsolutePath().normalize().toString();
+        Object lookup = JinixRuntime.getRuntime().lookup(pathString);
         if (lookup instanceof RemoteFileHandle) {
             ((RemoteFileHandle) lookup).getParent().delete(((RemoteFileHandle) lookup).getPath());
+            JinixAttributeCache.invalidate(pathString);
             return;
         }
         if (lookup instanceof FileNameSpace) {
@@ -349,7 +401,7 @@ public class JinixFileSystemProvider extends FileSystemProvider {
     @Override
     public void copy(Path source, Path target, CopyOption... options) throws IOException {
         if (defaultFileSystemProvider == null) {
-            copyInternal(source, target, options);
+            copyInternal(source, target, false, options);
             return;
         }
         SecurityManager securityManager = System.getSecurityManager();
@@ -357,7 +409,7 @@ public class JinixFileSystemProvider extends FileSystemProvider {
             try {
                 securityManager.checkPermission(new JinixNativeAccessPermission());
             } catch (AccessControlException e) {
-                copyInternal(source, target, options);
+                copyInternal(source, target, false, options);
                 return;
             }
         }
@@ -365,19 +417,45 @@ public class JinixFileSystemProvider extends FileSystemProvider {
         defaultFileSystemProvider.copy(source, target, options);
     }
 
-    private void copyInternal(Path source, Path target, CopyOption... options) throws IOException {
-        Object srcLookup = JinixRuntime.getRuntime().lookup(source.toAbsolutePath().normalize().toString());
-        if (srcLookup instanceof RemoteFileHandle) {
+    /**
+     * Copy a file or a directory tree. Called by JinixFiles.copyTree().
+     *
+     * @return false if the paths must be copied through the default provider
+     */
+    boolean copyTree(Path source, Path target, CopyOption... options) throws IOException {
+        if (defaultFileSystemProvider == null) {
+            copyInternal(source, target, true, options);
+            return true;
+        }
+        SecurityManager securityManager = System.getSecurityManager();
+        if (securityManager != null) {
+            try {
+                securityManager.checkPermission(new JinixNativeAccessPermission());
+            } catch (AccessControlException e) {
+                copyInternal(source, target, true, options);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void copyInternal(Path source, Path target, boolean tree, CopyOption... options) throws IOException {
+        JinixAttributeCache.invalidateTree(target.toAbsolutePath().normalize().toString());
+        AttributedLookupResult srcResult = JinixRuntime.getRuntime().lookupWithAttributes(source.toAbsolutePath().normalize().toString());
+        if (srcResult != null && srcResult.object instanceof RemoteFileHandle) {
+            RemoteFileHandle srcLookup = (RemoteFileHandle) srcResult.object;
             Path targetDirectory = target.toAbsolutePath().normalize().getParent();
-            Object targetLookup = JinixRuntime.getRuntime().lookup(targetDirectory.toString());
+            AttributedLookupResult targetResult = JinixRuntime.getRuntime().lookupWithAttributes(targetDirectory.toString());
+            Object targetLookup = (targetResult != null ? targetResult.object : null);
             if (targetLookup instanceof RemoteFileHandle &&
-                    ((RemoteFileHandle) targetLookup).getAttributes().type == DirectoryFileData.FileType.DIRECTORY) {
-                copyInternal2((RemoteFileHandle) srcLookup, (RemoteFileHandle) targetLookup, target.getFileName().toString(), options);
+                    targetResult.attributes.type == DirectoryFileData.FileType.DIRECTORY) {
+                copyInternal2(srcLookup, srcResult.attributes, (RemoteFileHandle) targetLookup, target.getFileName().toString(), tree, options);
                 return;
             }
             if (targetLookup instanceof FileNameSpace) {
                 RemoteFileHandle targetDirectoryFile = (RemoteFileHandle) ((FileNameSpace) targetLookup).lookup(-1, "/.");
-                copyInternal2((RemoteFileHandle) srcLookup, targetDirectoryFile, target.getFileName().toString(), options);
+                copyInternal2(srcLookup, srcResult.attributes, targetDirectoryFile, target.getFileName().toString(), tree, options);
                 return;
             }
             throw new NoSuchFileException(target.toAbsolutePath().toString());
@@ -385,19 +463,16 @@ public class JinixFileSystemProvider extends FileSystemProvider {
         throw new NoSuchFileException(source.toAbsolutePath().toString());
     }
 
-    private void copyInternal2(RemoteFileHandle srcLookup, RemoteFileHandle targetLookup, String fileName, CopyOption... options)
+    private void copyInternal2(RemoteFileHandle srcLookup, DirectoryFileData srcAttributes, RemoteFileHandle targetLookup,
+                               String fileName, boolean tree, CopyOption... options)
             throws IOException {
 
-        if ( targetLookup.getParent().getURI().equals(srcLookup.getParent().getURI()) ) {
-            srcLookup.getParent().copy(srcLookup, targetLookup, fileName, options);
+        if ( !tree && targetLookup.getParent().getURI().equals(srcLookup.getParent().getURI()) ) {
+            srcLookup.getParent().copy(srcLookup, targetLookup, fileName, JinixCopyProgress.strip(options));
             return;
         } else {
-            if (srcLookup.getAttributes().type == DirectoryFileData.FileType.DIRECTORY) {
-                throw new UnsupportedOperationException("Directory move between filesystems is not supported yet");
-            } else {
-                srcLookup.getParent().copy(srcLookup, targetLookup, fileName, options);
-                return;
-            }
+            new JinixCopyEngine(tree, options).copy(srcLookup, srcAttributes, targetLookup, fileName);
+            return;
         }
     }
 
@@ -427,22 +502,26 @@ public class JinixFileSystemProvider extends FileSystemProvider {
     }
 
     private void moveInternal(Path source, Path target, CopyOption... options) throws IOException {
-        Object srcLookup = JinixRuntime.getRuntime().lookup(source.toAbsolutePath().normalize().toString());
-        if (srcLookup instanceof RemoteFileHandle) {
+        JinixAttributeCache.invalidateTree(source.toAbsolutePath().normalize().toString());
+        JinixAttributeCache.invalidateTree(target.toAbsolutePath().normalize().toString());
+        AttributedLookupResult srcResult = JinixRuntime.getRuntime().lookupWithAttributes(source.toAbsolutePath().normalize().toString());
+        if (srcResult != null && srcResult.object instanceof RemoteFileHandle) {
+            RemoteFileHandle srcLookup = (RemoteFileHandle) srcResult.object;
             target = target.toAbsolutePath().normalize();
             Path targetDirectory = target.getParent();
             String fileName = target.getFileName().toString();
-            Object targetLookup = JinixRuntime.getRuntime().lookup(targetDirectory.toString());
+            AttributedLookupResult targetResult = JinixRuntime.getRuntime().lookupWithAttributes(targetDirectory.toString());
+            Object targetLookup = (targetResult != null ? targetResult.object : null);
 
             if (targetLookup instanceof RemoteFileHandle &&
-                    ((RemoteFileHandle) targetLookup).getAttributes().type == DirectoryFileData.FileType.DIRECTORY) {
-                moveInternal2((RemoteFileHandle) srcLookup, (RemoteFileHandle) targetLookup, fileName, options);
+                    targetResult.attributes.type == DirectoryFileData.FileType.DIRECTORY) {
+                moveInternal2(srcLookup, srcResult.attributes, (RemoteFileHandle) targetLookup, fileName, options);
                 return;
             }
 
             if (targetLookup instanceof FileNameSpace) {
                 RemoteFileHandle targetDirectoryFile = (RemoteFileHandle) ((FileNameSpace) targetLookup).lookup(-1, "/.");
-                moveInternal2((RemoteFileHandle) srcLookup, targetDirectoryFile, fileName, options);
+                moveInternal2(srcLookup, srcResult.attributes, targetDirectoryFile, fileName, options);
                 return;
             }
 
@@ -452,19 +531,21 @@ public class JinixFileSystemProvider extends FileSystemProvider {
         throw new NoSuchFileException(source.toAbsolutePath().toString());
     }
 
-    private void moveInternal2(RemoteFileHandle srcLookup, RemoteFileHandle targetLookup, String fileName, CopyOption... options)
+    private void moveInternal2(RemoteFileHandle srcLookup, DirectoryFileData srcAttributes, RemoteFileHandle targetLookup,
+                               String fileName, CopyOption... options)
             throws IOException {
         if ( targetLookup.getParent().getURI().equals(srcLookup.getParent().getURI()) ) {
-            srcLookup.getParent().move(srcLookup, targetLookup, fileName, options);
+            srcLookup.getParent().move(srcLookup, targetLookup, fileName, JinixCopyProgress.strip(options));
             return;
         } else {
-            if (srcLookup.getAttributes().type == DirectoryFileData.FileType.DIRECTORY) {
-                throw new UnsupportedOperationException("Directory move between filesystems is not supported yet");
-            } else {
-                srcLookup.getParent().copy(srcLookup, targetLookup, fileName, options);
-                srcLookup.getParent().delete(srcLookup.getPath());
-                return;
+            // Between FileNameSpaces a move is a copy followed by a delete, which cannot be atomic
+            if (Arrays.asList(options).contains(StandardCopyOption.ATOMIC_MOVE)) {
+                throw new AtomicMoveNotSupportedException(srcLookup.getPath(), fileName,
+                        "Move between FileNameSpaces");
             }
+            new JinixCopyEngine(true, options).copy(srcLookup, srcAttributes, targetLookup, fileName);
+            JinixCopyEngine.deleteTree(srcLookup.getParent(), srcLookup.getPath(), srcAttributes);
+            return;
         }
     }
     @Override
@@ -639,14 +720,24 @@ public class JinixFileSystemProvider extends FileSystemProvider {
         defaultFileSystemProvider.setAttribute(path, attribute, value, options);
     }
 
+    private JinixFileDescriptor openFileDescriptor(Path path, Set<? extends OpenOption> options)
+            throws IOException {
+        JinixFileDescriptor fd = new JinixFileDescriptor(open(path, options));
+        String cacheKey = path.toAbsolutePath().normalize().toString();
+        fd.setAttributeCacheKey(cacheKey);
+        JinixAttributeCache.invalidate(cacheKey); // CREATE or TRUNCATE_EXISTING may have changed the file
+        return fd;
+    }
+
     private RemoteFileAccessor open(Path path, Set<? extends OpenOption> options)
             throws IOException {
         try {
             int pid = JinixRuntime.getRuntime().getPid();
             path = path.toAbsolutePath();
-            Object lookup = JinixRuntime.getRuntime().lookup(path.toString());
-            if (lookup != null) {
-                if (lookup instanceof RemoteFileHandle && ((RemoteFileHandle) lookup).getAttributes().type == DirectoryFileData.FileType.FILE) {
+            AttributedLookupResult result = JinixRuntime.getRuntime().lookupWithAttributes(path.toString());
+            if (result != null) {
+                Object lookup = result.object;
+                if (lookup instanceof RemoteFileHandle && result.attributes.type == DirectoryFileData.FileType.FILE) {
                     // Throws FileAlreadyExistsException with CREATE_NEW option
                     return ((RemoteFileHandle) lookup).getParent().getRemoteFileAccessor(pid, ((RemoteFileHandle) lookup).getPath(), options);
                 } else {
@@ -654,9 +745,10 @@ public class JinixFileSystemProvider extends FileSystemProvider {
                 }
             } else {
                 String fileName = path.getFileName().toString();
-                Object directoryLookup = JinixRuntime.getRuntime().lookup(path.getParent().toString());
-                if (directoryLookup != null) {
-                    if (directoryLookup instanceof RemoteFileHandle && ((RemoteFileHandle) directoryLookup).getAttributes().type == DirectoryFileData.FileType.DIRECTORY) {
+                AttributedLookupResult directoryResult = JinixRuntime.getRuntime().lookupWithAttributes(path.getParent().toString());
+                if (directoryResult != null) {
+                    Object directoryLookup = directoryResult.object;
+                    if (directoryLookup instanceof RemoteFileHandle && directoryResult.attributes.type == DirectoryFileData.FileType.DIRECTORY) {
                         return ((RemoteFileHandle) directoryLookup).getParent().getRemoteFileAccessor(pid,
                                 ((RemoteFileHandle) directoryLookup).getPath()+"/"+fileName, options);
                     } else if (directoryLookup instanceof FileNameSpace) {
@@ -0,0 +1,114 @@
+package org.rowland.jinix.nio;
+
+import org.rowland.jinix.naming.DirectoryFileData;
+import org.rowland.jinix.naming.WalkFilter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * A recursive version of Files.copy(), and versions of the Files.walk() and Files.find() methods that walk a Jinix file tree inside the server that holds it.
+ * The server applies the filter, and returns the matching entries a page at a time, so a scan of a large tree takes
+ * a few round trips instead of several for every directory. Files.walk() and Files.find() are static methods of
+ * java.nio.file.Files that cannot be redirected to a provider, so Jinix programs call these methods instead. Paths
+ * that are not in a Jinix file system, and FileNameSpaces that do not support walk(), are handled by the Files
+ * methods.
+ */
+public class JinixFiles {
+
+    private JinixFiles() {
+    }
+
+    /**
+     * Copy a file, or a directory and everything below it. Files.copy() of a directory only creates an empty
+     * directory. Between Jinix FileNameSpaces the tree is copied in parallel chunks by the servers, and a
+     * JinixCopyProgress option reports the progress. Other paths are copied one entry at a time with Files.copy(),
+     * and JinixCopyProgress is ignored.
+     *
+     * @param source the file or directory to copy
+     * @param target the path of the copy
+     * @param options the copy options, as for Files.copy()
+     * @throws IOException
+     */
+    public static void copyTree(Path source, Path target, CopyOption... options) throws IOException {
+        FileSystemProvider provider = source.getFileSystem().provider();
+        if (provider instanceof JinixFileSystemProvider &&
+                target.getFileSystem().provider() == provider &&
+                ((JinixFileSystemProvider) provider).copyTree(source, target, options)) {
+            return;
+        }
+
+        CopyOption[] fileOptions = JinixCopyProgress.strip(options);
+        try (Stream<Path> paths = Files.walk(source)) {
+            Iterator<Path> it = paths.iterator();
+            while (it.hasNext()) {
+                Path p = it.next();
+                Files.copy(p, target.resolve(source.relativize(p).toString()), fileOptions);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @see Files#walk(Path, int, java.nio.file.FileVisitOption...)
+     */
+    public static Stream<Path> walk(Path start, int maxDepth) throws IOException {
+        return find(start, maxDepth, null);
+    }
+
+    /**
+     * Return the paths in the file tree rooted at start that match a filter. The filter is applied to the start
+     * path as well, as it is by Files.find().
+     *
+     * @param start the starting file
+     * @param maxDepth the maximum number of directory levels to search
+     * @param filter the filter that returned paths must match, or null to return every path
+     * @return a Stream of the matching paths. The stream must be closed to release the server cursor.
+     * @throws IOException
+     */
+    public static Stream<Path> find(Path start, int maxDepth, WalkFilter filter) throws IOException {
+        FileSystemProvider provider = start.getFileSystem().provider();
+        if (provider instanceof JinixFileSystemProvider) {
+            Stream<Path> s = ((JinixFileSystemProvider) provider).walk(start, maxDepth, filter);
+            if (s != null) {
+                return s;
+            }
+        }
+
+        if (filter == null) {
+            return Files.walk(start, maxDepth);
+        }
+        return Files.find(start, maxDepth, (p, attrs) -> {
+            Path name = p.getFileName();
+            return filter.accept((name != null ? name.toString() : ""), toDirectoryFileData(attrs));
+        });
+    }
+
+    /**
+     * Create a filter that matches entry names with a glob pattern, as described in FileSystem.getPathMatcher().
+     *
+     * @param glob the glob pattern
+     * @return the filter
+     */
+    public static WalkFilter globFilter(String glob) {
+        WalkFilter filter = new WalkFilter();
+        filter.nameRegex = Globs.toUnixRegexPattern(glob);
+        return filter;
+    }
+
+    private static DirectoryFileData toDirectoryFileData(BasicFileAttributes attrs) {
+        DirectoryFileData dfd = new DirectoryFileData();
+        dfd.length = attrs.size();
+        dfd.lastModified = attrs.lastModifiedTime().toMillis();
+        dfd.type = (attrs.isDirectory() ? DirectoryFileData.FileType.DIRECTORY : DirectoryFileData.FileType.FILE);
+        return dfd;
+    }
+}
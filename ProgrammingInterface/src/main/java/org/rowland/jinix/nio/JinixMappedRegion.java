@@ -0,0 +1,190 @@
+package org.rowland.jinix.nio;
+
+import org.rowland.jinix.lang.JinixRuntime;
+import org.rowland.jinix.naming.RemoteFileAccessor;
+import org.rowland.jinixspi.JinixNativeAccessPermission;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.AccessControlException;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.Arrays;
+
+/**
+ * A memory mapped region of a Jinix file. MappedByteBuffer cannot be extended outside java.nio, so every mapping is
+ * a real host mapping. If the file server negotiates a host path for the file, that file is mapped directly.
+ * Otherwise the region is copied into an unlinked host temporary file which is mapped in its place, and a snapshot
+ * of the region is kept so that pages that have changed can be written back to the file server by writeBack().
+ *
+ * The host path returned by a file server cannot be verified to belong to the file, so a direct mapping opens it
+ * with the caller's own permissions, and is only attempted for callers that hold JinixNativeAccessPermission.
+ * Ordinary Jinix programs do not hold it, and always get an emulated mapping. The temporary file of an emulated
+ * mapping is created by this class, so that file operation runs privileged.
+ *
+ * An emulated mapping holds a copy of the region, and a READ_WRITE mapping holds a snapshot as well, so emulated
+ * mappings are limited to jinix.nio.maxEmulatedMapSize bytes (default 64MB). A region only holds its buffer weakly.
+ * Once the program drops the buffer the region is discarded, and changes to an emulated mapping that were not
+ * written back by force() or by closing the channel are lost.
+ */
+class JinixMappedRegion {
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int TRANSFER_SIZE = 64 * 1024;
+    private static final long MAX_EMULATED_SIZE = Long.getLong("jinix.nio.maxEmulatedMapSize", 64 * 1024 * 1024);
+
+    private final RemoteFileAccessor raf;
+    private final long position;
+    private final WeakReference<MappedByteBuffer> buffer;
+    private MappedByteBuffer newBuffer; // Held until the buffer is handed to the caller by takeBuffer()
+    private final byte[] snapshot; // null for direct mappings and for emulated mappings that are never written back
+    private final boolean forceable; // true for direct READ_WRITE mappings
+
+    private JinixMappedRegion(RemoteFileAccessor raf, long position, MappedByteBuffer buffer, byte[] snapshot,
+                              boolean forceable) {
+        this.raf = raf;
+        this.position = position;
+        this.buffer = new WeakReference<>(buffer);
+        this.newBuffer = buffer;
+        this.snapshot = snapshot;
+        this.forceable = forceable;
+    }
+
+    /**
+     * @return the buffer of a new region. The region holds the buffer weakly after this call.
+     */
+    synchronized MappedByteBuffer takeBuffer() {
+        MappedByteBuffer mbb = newBuffer;
+        newBuffer = null;
+        return mbb;
+    }
+
+    /**
+     * @return true if the program has dropped the buffer, and the region can be discarded
+     */
+    boolean isDiscarded() {
+        return buffer.get() == null;
+    }
+
+    /**
+     * @return true if the caller may map host files directly, which requires JinixNativeAccessPermission
+     */
+    static boolean isDirectMappingPermitted() {
+        SecurityManager securityManager = System.getSecurityManager();
+        if (securityManager != null) {
+            try {
+                securityManager.checkPermission(new JinixNativeAccessPermission());
+            } catch (AccessControlException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @throws IOException if an emulated mapping of size bytes would exceed jinix.nio.maxEmulatedMapSize
+     */
+    static void checkEmulatedSize(long size) throws IOException {
+        if (size > MAX_EMULATED_SIZE) {
+            throw new IOException("Mapping of " + size + " bytes exceeds the emulated mapping limit of " +
+                    MAX_EMULATED_SIZE + " bytes");
+        }
+    }
+
+    /**
+     * Map a region of a file directly through the host path returned by the file server. The host file is opened
+     * with the caller's permissions. A PRIVATE mapping needs a writable channel for its copy on write pages.
+     */
+    static JinixMappedRegion mapDirect(RemoteFileAccessor raf, String hostPath, FileChannel.MapMode mode,
+                                       long position, long size) throws IOException {
+        StandardOpenOption[] openOptions = (mode != FileChannel.MapMode.READ_ONLY ?
+                new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE} :
+                new StandardOpenOption[] {StandardOpenOption.READ});
+        MappedByteBuffer mbb;
+        try (FileChannel fc = FileChannel.open(Paths.get(hostPath), openOptions)) {
+            mbb = fc.map(mode, position, size);
+        }
+        return new JinixMappedRegion(raf, position, mbb, null, mode == FileChannel.MapMode.READ_WRITE);
+    }
+
+    /**
+     * Emulate a mapping by loading the region into a private host temporary file.
+     */
+    static JinixMappedRegion mapEmulated(RemoteFileAccessor raf, FileChannel.MapMode mode, long position, int size)
+            throws IOException {
+        checkEmulatedSize(size);
+        int pgid = JinixRuntime.getRuntime().getProcessGroupId();
+        byte[] data = new byte[size];
+        int offset = 0;
+        while (offset < size) {
+            byte[] b = raf.readAt(pgid, position + offset, Math.min(size - offset, TRANSFER_SIZE));
+            if (b == null) {
+                break; // The remainder of the region is beyond the end of file and reads as zeros.
+            }
+            System.arraycopy(b, 0, data, offset, b.length);
+            offset += b.length;
+        }
+
+        MappedByteBuffer mbb = runPrivileged(() -> {
+            Path tmp = Files.createTempFile("jinix-map", null);
+            try (FileChannel fc = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                fc.write(ByteBuffer.wrap(data));
+                // Read only mappings are backed by a writable private copy, so map them read only to keep
+                // the ReadOnlyBufferException behavior.
+                return fc.map(mode == FileChannel.MapMode.READ_ONLY ?
+                        FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                Files.delete(tmp);
+            }
+        });
+
+        return new JinixMappedRegion(raf, position, mbb, (mode == FileChannel.MapMode.READ_WRITE ? data : null), false);
+    }
+
+    /**
+     * Write the pages of an emulated READ_WRITE mapping that have changed since the last write back to the file
+     * server. Direct mappings are written by the host, and are forced with MappedByteBuffer.force().
+     */
+    synchronized void writeBack() throws IOException {
+        MappedByteBuffer mbb = buffer.get();
+        if (mbb == null) {
+            return;
+        }
+        if (snapshot == null) {
+            if (forceable) {
+                mbb.force();
+            }
+            return;
+        }
+
+        int pgid = JinixRuntime.getRuntime().getProcessGroupId();
+        ByteBuffer current = mbb.duplicate();
+        byte[] page = new byte[PAGE_SIZE];
+        for (int offset = 0; offset < snapshot.length; offset += PAGE_SIZE) {
+            int len = Math.min(PAGE_SIZE, snapshot.length - offset);
+            current.position(offset);
+            current.get(page, 0, len);
+            if (!Arrays.equals(page, 0, len, snapshot, offset, offset + len)) {
+                raf.writeAt(pgid, position + offset, Arrays.copyOf(page, len));
+                System.arraycopy(page, 0, snapshot, offset, len);
+            }
+        }
+    }
+
+    private static MappedByteBuffer runPrivileged(PrivilegedExceptionAction<MappedByteBuffer> action)
+            throws IOException {
+        try {
+            return AccessController.doPrivileged(action);
+        } catch (PrivilegedActionException e) {
+            throw (IOException) e.getException();
+        }
+    }
+}
@@ -37,6 +37,9 @@ public class JinixPath implements Path {
     // array of offsets of elements in path (created lazily)
     private volatile int[] offsets;
 
+    // attributes prefetched when the path was returned by a DirectoryStream (may be null)
+    private volatile JinixAttributeCache.Entry prefetchedAttributes;
+
     public JinixPath(String input) {
         this(new JinixFileSystem(), encode(normalizeAndCheck(input)));
     }
@@ -51,6 +54,15 @@ public class JinixPath implements Path {
         this(fs, encode(normalizeAndCheck(input)));
     }
 
+    JinixAttributeCache.Entry getPrefetchedAttributes() {
+        JinixAttributeCache.Entry e = prefetchedAttributes;
+        return (e != null && e.isLive() ? e : null);
+    }
+
+    void setPrefetchedAttributes(JinixAttributeCache.Entry e) {
+        prefetchedAttributes = e;
+    }
+
     // package-private
     // removes redundant slashes and check input for invalid characters
     static String normalizeAndCheck(String input) {
@@ -787,7 +799,9 @@ public class JinixPath implements Path {
     {
         if (watcher == null)
             throw new NullPointerException();
-        return null;
+        if (!(watcher instanceof JinixWatchService))
+            throw new ProviderMismatchException();
+        return ((JinixWatchService) watcher).register(this, events);
     }
 
     @Override
@@ -0,0 +1,402 @@
+package org.rowland.jinix.nio;
+
+import org.rowland.jinix.JinixKernelUnicastRemoteObject;
+import org.rowland.jinix.lang.JinixRuntime;
+import org.rowland.jinix.naming.AttributedLookupResult;
+import org.rowland.jinix.naming.DirectoryFileData;
+import org.rowland.jinix.naming.FileChangeEvent;
+import org.rowland.jinix.naming.FileChangeListener;
+import org.rowland.jinix.naming.FileNameSpace;
+import org.rowland.jinix.naming.RemoteFileHandle;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.Watchable;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A WatchService for the Jinix OS. Each registered directory subscribes to the change events of the FileNameSpace
+ * that holds it with FileNameSpace.addChangeListener(). If the FileNameSpace does not support change listeners, the
+ * directory is polled with listWithAttributes() instead, every jinix.watchService.pollInterval milliseconds (default
+ * 2000), and the changes are found by comparing each listing with the one before.
+ *
+ * Every event received also invalidates the JinixAttributeCache and LookupCache entries of the changed file, so
+ * a process that watches a directory sees changes made by other processes without waiting for the caches to expire.
+ */
+class JinixWatchService implements WatchService {
+
+    private static final long POLL_INTERVAL =
+            Long.getLong("jinix.watchService.pollInterval", 2000);
+    private static final int MAX_EVENTS = 512;
+
+    private static volatile ScheduledExecutorService pollExecutor;
+
+    private final JinixFileSystem fs;
+    private final LinkedBlockingDeque<WatchKey> signalledKeys = new LinkedBlockingDeque<>();
+    private final List<Key> keys = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    // Queued by close() to wake threads waiting in take() or poll()
+    private final WatchKey CLOSE_KEY = new Key(null, null, null, null, Collections.emptySet());
+
+    JinixWatchService(JinixFileSystem fs) {
+        this.fs = fs;
+    }
+
+    WatchKey register(JinixPath dir, WatchEvent.Kind<?>[] events) throws IOException {
+        ensureOpen();
+
+        Set<WatchEvent.Kind<?>> kinds = new HashSet<>();
+        for (WatchEvent.Kind<?> kind : events) {
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE ||
+                    kind == StandardWatchEventKinds.ENTRY_MODIFY ||
+                    kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                kinds.add(kind);
+            } else if (kind != StandardWatchEventKinds.OVERFLOW) {
+                if (kind == null)
+                    throw new NullPointerException("An element in event set is 'null'");
+                throw new UnsupportedOperationException(kind.name());
+            }
+        }
+        if (kinds.isEmpty())
+            throw new IllegalArgumentException("No events to register");
+
+        String absolutePath = dir.toAbsolutePath().normalize().toString();
+        AttributedLookupResult result = JinixRuntime.getRuntime().lookupWithAttributes(absolutePath);
+        Object lookup = (result != null ? result.object : null);
+        FileNameSpace fns = null;
+        String directoryPathName = null;
+        if (lookup instanceof RemoteFileHandle &&
+                result.attributes.type == DirectoryFileData.FileType.DIRECTORY) {
+            fns = ((RemoteFileHandle) lookup).getParent();
+            directoryPathName = ((RemoteFileHandle) lookup).getPath();
+        }
+        if (lookup instanceof FileNameSpace) {
+            fns = (FileNameSpace) lookup;
+            directoryPathName = "/";
+        }
+        if (fns == null) {
+            throw new NotDirectoryException(absolutePath);
+        }
+
+        Key key = new Key(dir, absolutePath, fns, directoryPathName, kinds);
+        try {
+            key.listener = new Listener(key);
+            fns.addChangeListener(directoryPathName, key.listener);
+        } catch (UnsupportedOperationException e) {
+            key.listener.unexport();
+            key.listener = null;
+            key.startPolling();
+        }
+        synchronized (keys) {
+            keys.add(key);
+        }
+        return key;
+    }
+
+    @Override
+    public void close() throws IOException {
+        List<Key> registered;
+        synchronized (keys) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            registered = new ArrayList<>(keys);
+            keys.clear();
+        }
+        for (Key key : registered) {
+            key.cancel();
+        }
+        signalledKeys.clear();
+        signalledKeys.offer(CLOSE_KEY);
+    }
+
+    @Override
+    public WatchKey poll() {
+        ensureOpen();
+        return checkKey(signalledKeys.poll());
+    }
+
+    @Override
+    public WatchKey poll(long timeout, TimeUnit unit) throws InterruptedException {
+        ensureOpen();
+        return checkKey(signalledKeys.poll(timeout, unit));
+    }
+
+    @Override
+    public WatchKey take() throws InterruptedException {
+        ensureOpen();
+        return checkKey(signalledKeys.take());
+    }
+
+    private WatchKey checkKey(WatchKey key) {
+        if (key == CLOSE_KEY) {
+            signalledKeys.offer(CLOSE_KEY); // Wake any other waiting threads
+        }
+        ensureOpen();
+        return key;
+    }
+
+    private void ensureOpen() {
+        if (closed)
+            throw new ClosedWatchServiceException();
+    }
+
+    private static ScheduledExecutorService getPollExecutor() {
+        if (pollExecutor == null) {
+            synchronized (JinixWatchService.class) {
+                if (pollExecutor == null) {
+                    pollExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "JinixWatchService-poller");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return pollExecutor;
+    }
+
+    private static class Event<T> implements WatchEvent<T> {
+        private final WatchEvent.Kind<T> kind;
+        private final T context;
+        private int count = 1;
+
+        private Event(WatchEvent.Kind<T> kind, T context) {
+            this.kind = kind;
+            this.context = context;
+        }
+
+        @Override
+        public WatchEvent.Kind<T> kind() {
+            return kind;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public T context() {
+            return context;
+        }
+    }
+
+    private class Key implements WatchKey {
+        private final JinixPath dir;
+        private final String absolutePath;
+        private final FileNameSpace fns;
+        private final String directoryPathName;
+        private final Set<WatchEvent.Kind<?>> kinds;
+
+        private Listener listener;
+        private ScheduledFuture<?> pollTask;
+        private Map<String, DirectoryFileData> snapshot;
+
+        private List<WatchEvent<?>> events = new ArrayList<>();
+        private boolean signalled = false;
+        private volatile boolean valid = true;
+
+        private Key(JinixPath dir, String absolutePath, FileNameSpace fns, String directoryPathName,
+                    Set<WatchEvent.Kind<?>> kinds) {
+            this.dir = dir;
+            this.absolutePath = absolutePath;
+            this.fns = fns;
+            this.directoryPathName = directoryPathName;
+            this.kinds = kinds;
+        }
+
+        private void startPolling() throws IOException {
+            snapshot = list();
+            if (snapshot == null) {
+                throw new NotDirectoryException(absolutePath);
+            }
+            pollTask = getPollExecutor().scheduleWithFixedDelay(this::pollDirectory,
+                    POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+
+        private Map<String, DirectoryFileData> list() throws IOException {
+            DirectoryFileData[] dirList = fns.listWithAttributes(directoryPathName);
+            if (dirList == null) {
+                return null;
+            }
+            Map<String, DirectoryFileData> m = new HashMap<>(dirList.length * 2);
+            for (DirectoryFileData dfd : dirList) {
+                m.put(dfd.name, dfd);
+            }
+            return m;
+        }
+
+        private void pollDirectory() {
+            Map<String, DirectoryFileData> current;
+            try {
+                current = list();
+            } catch (IOException | RuntimeException e) {
+                current = null;
+            }
+            if (current == null) {
+                // The directory is gone or its server cannot be reached
+                cancel();
+                return;
+            }
+            for (Map.Entry<String, DirectoryFileData> entry : current.entrySet()) {
+                DirectoryFileData previous = snapshot.get(entry.getKey());
+                if (previous == null) {
+                    signalEvent(FileChangeEvent.Kind.CREATE, entry.getKey());
+                } else if (previous.lastModified != entry.getValue().lastModified ||
+                        previous.length != entry.getValue().length) {
+                    signalEvent(FileChangeEvent.Kind.MODIFY, entry.getKey());
+                }
+            }
+            for (String name : snapshot.keySet()) {
+                if (!current.containsKey(name)) {
+                    signalEvent(FileChangeEvent.Kind.DELETE, name);
+                }
+            }
+            snapshot = current;
+        }
+
+        /**
+         * Add an event for a directory entry, and queue the key if it is not already signalled.
+         *
+         * @param changeKind the kind of change
+         * @param name the name of the directory entry
+         */
+        private void signalEvent(FileChangeEvent.Kind changeKind, String name) {
+            JinixAttributeCache.invalidate(absolutePath.endsWith("/") ?
+                    absolutePath + name : absolutePath + "/" + name);
+
+            WatchEvent.Kind<Path> kind;
+            switch (changeKind) {
+                case CREATE:
+                    kind = StandardWatchEventKinds.ENTRY_CREATE;
+                    break;
+                case DELETE:
+                    kind = StandardWatchEventKinds.ENTRY_DELETE;
+                    break;
+                default:
+                    kind = StandardWatchEventKinds.ENTRY_MODIFY;
+            }
+            if (!valid || !kinds.contains(kind)) {
+                return;
+            }
+
+            Path context = new JinixPath(fs, name);
+            synchronized (this) {
+                int size = events.size();
+                if (size > 0) {
+                    WatchEvent<?> last = events.get(size - 1);
+                    if (last.kind() == StandardWatchEventKinds.OVERFLOW ||
+                            (last.kind() == kind && context.equals(last.context()))) {
+                        ((Event<?>) last).count++;
+                        return;
+                    }
+                }
+                if (size >= MAX_EVENTS) {
+                    events.add(new Event<>(StandardWatchEventKinds.OVERFLOW, null));
+                } else {
+                    events.add(new Event<>(kind, context));
+                }
+                signal();
+            }
+        }
+
+        private synchronized void signal() {
+            if (!signalled) {
+                signalled = true;
+                signalledKeys.offer(this);
+            }
+        }
+
+        @Override
+        public boolean isValid() {
+            return valid;
+        }
+
+        @Override
+        public synchronized List<WatchEvent<?>> pollEvents() {
+            List<WatchEvent<?>> result = events;
+            events = new ArrayList<>();
+            return result;
+        }
+
+        @Override
+        public synchronized boolean reset() {
+            if (signalled && valid) {
+                if (events.isEmpty()) {
+                    signalled = false;
+                } else {
+                    signalledKeys.offer(this);
+                }
+            }
+            return valid;
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (!valid) {
+                    return;
+                }
+                valid = false;
+            }
+            if (pollTask != null) {
+                pollTask.cancel(false);
+            }
+            if (listener != null) {
+                try {
+                    fns.removeChangeListener(directoryPathName, listener);
+                } catch (RemoteException | RuntimeException e) {
+                    // The server has gone away, and its listeners with it
+                }
+                listener.unexport();
+            }
+            synchronized (keys) {
+                keys.remove(this);
+            }
+            signal(); // A cancelled key is queued so that a waiting thread can see that it is no longer valid
+        }
+
+        @Override
+        public Watchable watchable() {
+            return dir;
+        }
+    }
+
+    private static class Listener extends JinixKernelUnicastRemoteObject implements FileChangeListener {
+        private final Key key;
+
+        private Listener(Key key) throws RemoteException {
+            super();
+            this.key = key;
+        }
+
+        @Override
+        public void filesChanged(FileChangeEvent[] events) throws RemoteException {
+            for (FileChangeEvent event : events) {
+                int i = event.path.lastIndexOf('/');
+                key.signalEvent(event.kind, event.path.substring(i + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.rowland.jinix.naming;
+
+/**
+ * How a process expects to access a range of a file, passed to RemoteFileAccessor.advise(). Hints are advisory, and
+ * a server is free to ignore them.
+ */
+public enum AccessHint {
+    NORMAL,     // No expectation. The server detects sequential access itself.
+    SEQUENTIAL, // The range will be read from lower to higher offsets, so read ahead aggressively
+    RANDOM,     // The range will be read in no particular order, so do not read ahead
+    WILLNEED,   // The range will be read soon, so stage it now
+    DONTNEED,   // The range will not be read again soon, so drop anything staged for it
+    NOREUSE     // The range will be read once, so drop data as soon as it has been returned
+}
@@ -0,0 +1,48 @@
+package org.rowland.jinix.naming;
+
+import java.io.Serializable;
+import java.nio.file.NoSuchFileException;
+import java.rmi.RemoteException;
+
+/**
+ * The value returned by calls to lookupWithAttributes(). The object is the value that lookup() would return. The
+ * attributes are the DirectoryFileData of the object when it is a RemoteFileHandle, or of its attachment point in
+ * the parent FileNameSpace when it is a FileNameSpace. For any other object the attributes are null.
+ */
+public class AttributedLookupResult implements Serializable {
+    public Object object;
+    public DirectoryFileData attributes;
+
+    public AttributedLookupResult(Object object, DirectoryFileData attributes) {
+        this.object = object;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Build the result for an object returned by lookup(). Used by implementations of lookupWithAttributes() that
+     * do not have a cheaper way to get the attributes.
+     *
+     * @param object the object returned by lookup()
+     * @return the result, or null if object is null or was removed before its attributes could be read
+     * @throws RemoteException
+     */
+    public static AttributedLookupResult of(Object object) throws RemoteException {
+        if (object == null) {
+            return null;
+        }
+        try {
+            if (object instanceof RemoteFileHandle) {
+                return new AttributedLookupResult(object, ((RemoteFileHandle) object).getAttributes());
+            }
+            if (object instanceof FileNameSpace) {
+                FileNameSpace fns = (FileNameSpace) object;
+                FileNameSpace parent = fns.getParent();
+                return new AttributedLookupResult(object,
+                        (parent != null ? parent.getFileAttributes(fns.getPathWithinParent()) : null));
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return new AttributedLookupResult(object, null);
+    }
+}
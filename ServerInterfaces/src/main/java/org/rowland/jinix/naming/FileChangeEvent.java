@@ -0,0 +1,19 @@
+package org.rowland.jinix.naming;
+
+import java.io.Serializable;
+
+/**
+ * A change to an entry of a directory in a FileNameSpace, delivered to a FileChangeListener.
+ */
+public class FileChangeEvent implements Serializable {
+
+    public enum Kind {CREATE, MODIFY, DELETE};
+
+    public Kind kind;
+    public String path; // The path of the entry within the FileNameSpace
+
+    public FileChangeEvent(Kind kind, String path) {
+        this.kind = kind;
+        this.path = path;
+    }
+}
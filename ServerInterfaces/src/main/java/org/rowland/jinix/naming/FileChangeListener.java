@@ -0,0 +1,12 @@
+package org.rowland.jinix.naming;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Receives the changes to the entries of a directory, after registration with FileNameSpace.addChangeListener().
+ */
+public interface FileChangeListener extends Remote {
+
+    void filesChanged(FileChangeEvent[] events) throws RemoteException;
+}
@@ -5,6 +5,7 @@ import java.net.URI;
 import java.nio.file.*;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -29,6 +30,88 @@ public interface FileNameSpace extends Remote {
 
     String[] list(String directoryPathName) throws NotDirectoryException, RemoteException;
 
+    /**
+     * List a directory and return the attributes of every entry in a single call. The name field of each
+     * DirectoryFileData holds the entry name as returned by list(). The default implementation calls list() and then
+     * getFileAttributes() for each entry within this server, skipping entries removed in between.
+     *
+     * @param directoryPathName the directory to list
+     * @return the attributes of the entries in the directory
+     * @throws NotDirectoryException
+     * @throws RemoteException
+     */
+    default DirectoryFileData[] listWithAttributes(String directoryPathName)
+            throws NotDirectoryException, RemoteException {
+        String[] names = list(directoryPathName);
+        if (names == null) {
+            return null;
+        }
+        String directoryPrefix = (directoryPathName.endsWith("/") ? directoryPathName : directoryPathName + "/");
+        List<DirectoryFileData> entries = new ArrayList<>(names.length);
+        for (String name : names) {
+            try {
+                DirectoryFileData dfd = getFileAttributes(directoryPrefix + name);
+                dfd.name = name;
+                entries.add(dfd);
+            } catch (NoSuchFileException e) {
+                // Removed since the list was taken
+            }
+        }
+        return entries.toArray(new DirectoryFileData[entries.size()]);
+    }
+
+    /**
+     * Open a cursor over the entries of a directory. Clients use a cursor to page through large directories. The
+     * default implementation returns null, and clients fall back to listWithAttributes().
+     *
+     * @param directoryPathName the directory to list
+     * @return a cursor positioned before the first entry, or null if this FileNameSpace does not support cursors
+     * @throws NotDirectoryException
+     * @throws RemoteException
+     */
+    default RemoteDirectoryCursor openDirectoryCursor(String directoryPathName)
+            throws NotDirectoryException, RemoteException {
+        return null;
+    }
+
+    /**
+     * Walk the tree below a directory inside the server, and return the entries that match a filter through a cursor.
+     * Entries are returned in depth first pre-order, and the name field of each DirectoryFileData holds the path of
+     * the entry relative to the root directory, for example "src/Main.java". The root directory itself is not
+     * returned. The walk descends into every directory to maxDepth whether or not the directory matches the filter.
+     * The default implementation returns null, and clients fall back to walking the tree themselves.
+     *
+     * @param rootPathName the directory at the root of the walk
+     * @param maxDepth the maximum depth of the entries returned. Entries of the root directory are at depth 1.
+     * @param filter the filter that entries must match, or null to return every entry
+     * @return a cursor over the matching entries, or null if this FileNameSpace does not support walk
+     * @throws NotDirectoryException
+     * @throws RemoteException
+     */
+    default RemoteDirectoryCursor walk(String rootPathName, int maxDepth, WalkFilter filter)
+            throws NotDirectoryException, RemoteException {
+        return null;
+    }
+
+    /**
+     * Register a listener to receive the create, modify and delete events of the entries of a directory. Events are
+     * delivered asynchronously, and a listener that cannot be reached is removed. The default implementation throws
+     * UnsupportedOperationException, and clients fall back to polling the directory.
+     *
+     * @param directoryPathName the directory to watch
+     * @param listener the listener
+     * @throws NotDirectoryException
+     * @throws RemoteException
+     */
+    default void addChangeListener(String directoryPathName, FileChangeListener listener)
+            throws NotDirectoryException, RemoteException {
+        throw new UnsupportedOperationException();
+    }
+
+    default void removeChangeListener(String directoryPathName, FileChangeListener listener) throws RemoteException {
+        throw new UnsupportedOperationException();
+    }
+
     boolean createFileAtomically(String parentDirectoryPathName, String newFileName) throws FileAlreadyExistsException, RemoteException;
 
     boolean createDirectory(String parentDirectoryPathName, String newDirectoryName) throws FileAlreadyExistsException, RemoteException;
@@ -76,6 +159,20 @@ public interface FileNameSpace extends Remote {
      */
     Object lookup(int pid, String name) throws RemoteException;
 
+    /**
+     * Lookup an object in this FileNameSpace and return it together with its attributes, saving the client the
+     * getAttributes() call that usually follows a lookup. The default implementation calls lookup() and then gets
+     * the attributes within this server.
+     *
+     * @param pid the process id of the process initiating the lookup
+     * @param name the name of the object to lookup
+     * @return the object and its attributes, or null if nothing exists with the given name
+     * @throws RemoteException
+     */
+    default AttributedLookupResult lookupWithAttributes(int pid, String name) throws RemoteException {
+        return AttributedLookupResult.of(lookup(pid, name));
+    }
+
     RemoteFileAccessor getRemoteFileAccessor(int pid, String filePathName, Set<? extends OpenOption> options) throws FileAlreadyExistsException, NoSuchFileException, RemoteException;
 
     RemoteFileAccessor getRemoteFileAccessor(int pid, RemoteFileHandle fileHandle, Set<? extends OpenOption> options) throws FileAlreadyExistsException, NoSuchFileException, RemoteException;
@@ -98,5 +195,82 @@ public interface FileNameSpace extends Remote {
      */
     String getPathWithinParent() throws RemoteException;
 
+    /**
+     * Lookup a list of names in a single call. The default implementation calls lookup() for each name on the server.
+     *
+     * @param pid the process id of the process initiating the lookup
+     * @param names the names to lookup
+     * @return the object found for each name, in the order of names, with null where nothing was found
+     * @throws RemoteException
+     */
+    default Object[] lookupAll(int pid, String[] names) throws RemoteException {
+        Object[] results = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            results[i] = lookup(pid, names[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Test whether an object exists at a name. The default implementation calls lookup() on the server, so that
+     * only the answer is returned to the caller.
+     *
+     * @param pid the process id of the process initiating the test
+     * @param name the name to test
+     * @return true if lookup() would return an object
+     * @throws RemoteException
+     */
+    default boolean exists(int pid, String name) throws RemoteException {
+        return lookup(pid, name) != null;
+    }
+
     List<FileAccessorStatistics> getOpenFiles(int pid) throws RemoteException;
+
+    /**
+     * Get the number of RemoteFileAccessors and directory cursors currently open in this FileNameSpace by any process.
+     * The NameSpaceServer only reclaims an idle translator when this is 0. The default implementation returns -1,
+     * meaning the count is unknown, and a translator that does not know its count is never reclaimed.
+     *
+     * @return the number of open files, or -1 if unknown
+     * @throws RemoteException
+     */
+    default int getOpenFileCount() throws RemoteException {
+        return -1;
+    }
+
+    /**
+     * Lock a byte range of a file on behalf of a process. Shared locks on overlapping ranges may be held by any number
+     * of processes, but an exclusive lock excludes every other process from the range. Locks are owned by the process
+     * and are released by unlock, or when the process deregisters from the ProcessManager.
+     *
+     * The default implementation throws UnsupportedOperationException, which callers should treat as a
+     * FileNameSpace that does not support locking.
+     *
+     * @param pid the process id of the process that will own the lock
+     * @param filePathName the file to lock
+     * @param position the start of the locked range
+     * @param size the size of the locked range
+     * @param shared true for a shared lock, false for an exclusive lock
+     * @param wait true to block until the lock can be acquired, false to return immediately
+     * @return true if the lock was acquired, false if wait is false and a conflicting lock is held
+     * @throws java.nio.channels.OverlappingFileLockException if the process already holds a lock that overlaps the range
+     * @throws IOException
+     */
+    default boolean lock(int pid, String filePathName, long position, long size, boolean shared, boolean wait)
+            throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Release a lock previously acquired with lock.
+     *
+     * @param pid the process id of the process that owns the lock
+     * @param filePathName the locked file
+     * @param position the start of the locked range
+     * @param size the size of the locked range
+     * @throws RemoteException
+     */
+    default void unlock(int pid, String filePathName, long position, long size) throws RemoteException {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -18,6 +18,11 @@ public interface NameSpace extends java.rmi.Remote {
 
     static final String SERVER_LOGGER = "jinix.ns";
 
+    /**
+     * Passed as the pid to translatorFailure() by callers that do not know the process id of the translator.
+     */
+    static final int ANY_PID = -1;
+
     enum BindTranslatorOption {
         ACTIVATE,
         PASSIVE,
@@ -46,7 +51,97 @@ public interface NameSpace extends java.rmi.Remote {
 
     Object lookup(int pid, String path) throws RemoteException;
 
+    /**
+     * Lookup an object and return it together with its attributes in a single call. See
+     * FileNameSpace.lookupWithAttributes().
+     *
+     * @param pid the process id of the process initiating the lookup
+     * @param path the hierarchical name to lookup
+     * @return the object and its attributes, or null if nothing exists at path
+     * @throws RemoteException
+     */
+    default AttributedLookupResult lookupWithAttributes(int pid, String path) throws RemoteException {
+        return AttributedLookupResult.of(lookup(pid, path));
+    }
+
+    /**
+     * Lookup a list of paths in a single call. The NameSpace resolves each path to the FileNameSpace that holds it,
+     * and looks up the paths held by each FileNameSpace with a single FileNameSpace.lookupAll() call. The
+     * FileNameSpaces are called in parallel.
+     *
+     * @param pid the process id of the process initiating the lookup
+     * @param paths the hierarchical names to lookup
+     * @return the object found at each path, in the order of paths, with null where nothing was found
+     * @throws RemoteException
+     */
+    Object[] lookupAll(int pid, String[] paths) throws RemoteException;
+
+    /**
+     * Test whether an object exists at a path without activating any translator. The answer comes from the naming
+     * overlay, from a running translator, or from the root FileNameSpace, and misses in the root FileNameSpace are
+     * cached by the NameSpace.
+     *
+     * @param pid the process id of the process initiating the probe
+     * @param path the hierarchical name to probe
+     * @return TRUE or FALSE, or null if path is under a translator that is not running, and can only be answered by
+     * a lookup that activates the translator
+     * @throws RemoteException
+     */
+    Boolean probe(int pid, String path) throws RemoteException;
+
     List<FileAccessorStatistics> getOpenFiles(int pid) throws RemoteException;
 
-    void translatorFailure(String path) throws RemoteException;
+    /**
+     * Register a listener to be notified of changes to the bindings of the NameSpace. Notifications are delivered
+     * asynchronously. A listener that cannot be reached is removed.
+     *
+     * @param listener the listener
+     * @throws RemoteException
+     */
+    void registerChangeListener(NameSpaceChangeListener listener) throws RemoteException;
+
+    void unregisterChangeListener(NameSpaceChangeListener listener) throws RemoteException;
+
+    /**
+     * Called by a translator process to bind itself at its node once it is ready. The bind is only accepted from the
+     * process started by the activation in progress. A translator whose activation has been abandoned, for example
+     * because it did not bind before the activation deadline, is refused with an IllegalStateException.
+     *
+     * @param path the node of the translator
+     * @param pid the process id of the translator
+     * @param translator the remote interface of the translator
+     * @throws RemoteException
+     */
+    void translatorReady(String path, int pid, Remote translator) throws RemoteException;
+
+    /**
+     * Called by a translator process that exits without binding itself. Ignored unless pid is the process started by
+     * the translator's current activation, or ANY_PID.
+     *
+     * @param path the node of the translator
+     * @param pid the process id of the translator
+     * @throws RemoteException
+     */
+    void translatorFailure(String path, int pid) throws RemoteException;
+
+    /**
+     * Called by a translator process that exits without binding itself. Fails the translator's current activation
+     * whichever process it started.
+     *
+     * @param path the node of the translator
+     * @throws RemoteException
+     * @deprecated use translatorFailure(String, int), which cannot fail an activation that a newer process belongs to
+     */
+    @Deprecated
+    default void translatorFailure(String path) throws RemoteException {
+        translatorFailure(path, ANY_PID);
+    }
+
+    /**
+     * Get the activation statistics of every translator bound in the NameSpace.
+     *
+     * @return the statistics
+     * @throws RemoteException
+     */
+    List<TranslatorStatistics> getTranslatorStatistics() throws RemoteException;
 }
@@ -0,0 +1,20 @@
+package org.rowland.jinix.naming;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Receives notification of changes to the bindings of a NameSpace. Processes that cache the results of lookups
+ * register a listener with NameSpace.registerChangeListener() to learn when cached results become stale.
+ */
+public interface NameSpaceChangeListener extends Remote {
+
+    /**
+     * Called after an object or translator is bound or unbound at a path, or a translator bound at the path starts
+     * or fails. The lookup of the path and of every path below it may have changed.
+     *
+     * @param path the path whose binding changed
+     * @throws RemoteException
+     */
+    void nameSpaceChanged(String path) throws RemoteException;
+}
@@ -0,0 +1,23 @@
+package org.rowland.jinix.naming;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * A cursor over the entries of a directory, returned by FileNameSpace.openDirectoryCursor(). Entries are returned in
+ * pages so that a client can process a large directory without the server building the whole listing in a single
+ * response. The cursor must be closed when the client is done with it.
+ */
+public interface RemoteDirectoryCursor extends Remote {
+
+    /**
+     * Get the next page of entries. The name field of each DirectoryFileData holds the entry name.
+     *
+     * @param count the maximum number of entries to return
+     * @return up to count entries, or null when there are no more entries
+     * @throws RemoteException
+     */
+    DirectoryFileData[] next(int count) throws RemoteException;
+
+    void close() throws RemoteException;
+}
@@ -37,6 +37,266 @@ public interface RemoteFileAccessor extends Remote {
      */
     int write(int pgid, byte[] b) throws NonWritableChannelException, RemoteException;
 
+    /**
+     * Read up to len bytes from a file starting at the given position. The file pointer is not changed. A null return
+     * value indicates that position is at or beyond the end of file.
+     *
+     * The default implementation saves the file pointer, seeks, reads and then restores the file pointer while
+     * holding the accessor's monitor. It is only atomic with respect to other operations that hold the same monitor,
+     * so servers should override it with a true positional read.
+     *
+     * @param pgid the process group id of the Jinix process calling readAt
+     * @param position the file position to read from
+     * @param len the maximum number of bytes to read
+     * @return byte[] containing the bytes read from the file. The byte[] size may be less than len
+     * @throws NonReadableChannelException
+     * @throws RemoteException
+     */
+    default byte[] readAt(int pgid, long position, int len) throws NonReadableChannelException, RemoteException {
+        synchronized (this) {
+            long filePointer = getFilePointer();
+            try {
+                seek(position);
+                return read(pgid, len);
+            } finally {
+                seek(filePointer);
+            }
+        }
+    }
+
+    /**
+     * Write an array of bytes to a file at the given position. The file pointer is not changed.
+     *
+     * The default implementation saves the file pointer, seeks, writes and then restores the file pointer while
+     * holding the accessor's monitor. Servers should override it with a true positional write.
+     *
+     * @param pgid the process group id of the Jinix process calling writeAt
+     * @param position the file position to write at
+     * @param b the bytes to write
+     * @return the number of bytes written
+     * @throws NonWritableChannelException
+     * @throws RemoteException
+     */
+    default int writeAt(int pgid, long position, byte[] b) throws NonWritableChannelException, RemoteException {
+        synchronized (this) {
+            long filePointer = getFilePointer();
+            try {
+                seek(position);
+                return write(pgid, b);
+            } finally {
+                seek(filePointer);
+            }
+        }
+    }
+
+    /**
+     * Scattering read. Read up to lengths[0] + lengths[1] + ... bytes from the current position and return them split
+     * to match lengths. Each array returned is full except possibly the last, which is followed by no further arrays.
+     * A null return value indicates an end of file.
+     *
+     * The default implementation makes a single read() of the total length and splits the result.
+     *
+     * @param pgid the process group id of the Jinix process calling readv
+     * @param lengths the maximum number of bytes to read into each buffer
+     * @return byte[][] containing the bytes read, one array per buffer filled
+     * @throws NonReadableChannelException
+     * @throws RemoteException
+     */
+    default byte[][] readv(int pgid, int[] lengths) throws NonReadableChannelException, RemoteException {
+        long total = 0;
+        for (int l : lengths) {
+            total += l;
+        }
+        if (total == 0) {
+            return new byte[0][];
+        }
+        byte[] b = read(pgid, (int) Math.min(total, Integer.MAX_VALUE));
+        if (b == null) {
+            return null;
+        }
+
+        int count = 0;
+        int remaining = b.length;
+        while (remaining > 0) {
+            remaining -= lengths[count++];
+        }
+        byte[][] rtrn = new byte[count][];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            int l = Math.min(lengths[i], b.length - offset);
+            rtrn[i] = new byte[l];
+            System.arraycopy(b, offset, rtrn[i], 0, l);
+            offset += l;
+        }
+        return rtrn;
+    }
+
+    /**
+     * Gathering write. Write each array of bytes, in order, to a file at the current position.
+     *
+     * The default implementation calls write() once for each array.
+     *
+     * @param pgid the process group id of the Jinix process calling writev
+     * @param b the arrays of bytes to write
+     * @return the total number of bytes written
+     * @throws NonWritableChannelException
+     * @throws RemoteException
+     */
+    default long writev(int pgid, byte[][] b) throws NonWritableChannelException, RemoteException {
+        long bytesWritten = 0;
+        for (byte[] wb : b) {
+            bytesWritten += write(pgid, wb);
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Transfer up to count bytes starting at position in this file to the target file at the target's current
+     * position. The file pointer of this file is not changed. The bytes move from this server to the target server
+     * without passing through the calling process.
+     *
+     * The default implementation copies in chunks with readAt() and target.write(), and stops at the first chunk that
+     * the target does not write in full. Servers can override it to move the bytes natively when the target is one of
+     * their own files.
+     *
+     * @param pgid the process group id of the Jinix process calling transferTo
+     * @param position the position in this file of the first byte to transfer
+     * @param count the maximum number of bytes to transfer
+     * @param target the file to write the bytes to
+     * @return the number of bytes transferred
+     * @throws NonReadableChannelException
+     * @throws NonWritableChannelException
+     * @throws RemoteException
+     */
+    default long transferTo(int pgid, long position, long count, RemoteFileAccessor target)
+            throws NonReadableChannelException, NonWritableChannelException, RemoteException {
+        long transferred = 0;
+        while (transferred < count) {
+            byte[] b = readAt(pgid, position + transferred, (int) Math.min(count - transferred, 64 * 1024));
+            if (b == null) {
+                break;
+            }
+            int written = target.write(pgid, b);
+            transferred += Math.max(written, 0);
+            if (written < b.length) {
+                break; // Only the bytes written are reported transferred
+            }
+        }
+        return transferred;
+    }
+
+    /**
+     * Transfer up to count bytes from the source file's current position into this file starting at position. The
+     * file pointer of this file is not changed. The bytes move from the source server to this server without passing
+     * through the calling process.
+     *
+     * The default implementation copies in chunks with src.read() and writeAt(), and stops at the first chunk that is
+     * not written in full.
+     *
+     * @param pgid the process group id of the Jinix process calling transferFrom
+     * @param src the file to read the bytes from
+     * @param position the position in this file at which the transfer begins
+     * @param count the maximum number of bytes to transfer
+     * @return the number of bytes transferred
+     * @throws NonReadableChannelException
+     * @throws NonWritableChannelException
+     * @throws RemoteException
+     */
+    default long transferFrom(int pgid, RemoteFileAccessor src, long position, long count)
+            throws NonReadableChannelException, NonWritableChannelException, RemoteException {
+        long transferred = 0;
+        while (transferred < count) {
+            byte[] b = src.read(pgid, (int) Math.min(count - transferred, 64 * 1024));
+            if (b == null) {
+                break;
+            }
+            int written = writeAt(pgid, position + transferred, b);
+            transferred += Math.max(written, 0);
+            if (written < b.length) {
+                break;
+            }
+        }
+        return transferred;
+    }
+
+    /**
+     * Negotiate a direct memory mapping of this file. A server whose files are backed by files in the host
+     * filesystem may return the host path of the file, which the client library will map itself. Servers that
+     * cannot, or will not, allow a direct mapping return null and the client falls back to an emulated mapping.
+     *
+     * @param pgid the process group id of the Jinix process requesting the mapping
+     * @param writable true if the mapping will be written to
+     * @return the host filesystem path of the file, or null if the file cannot be mapped directly
+     * @throws RemoteException
+     */
+    default String negotiateMapping(int pgid, boolean writable) throws RemoteException {
+        return null;
+    }
+
+    /**
+     * Open an out of band data channel for this file. A server that supports data channels creates an AF_UNIX
+     * socket, and returns its host path. The client connects to the socket, and sends large reads and writes over it
+     * as raw bytes rather than as RMI calls. The data channel reads and writes at the current file position, the same
+     * as read() and write().
+     *
+     * @return the host path of the data channel socket, or null if the server does not support data channels
+     * @throws RemoteException
+     */
+    default String openDataChannel() throws RemoteException {
+        return null;
+    }
+
+    /**
+     * Open a shared memory buffer for this file. A server that supports shared memory creates a buffer of the
+     * requested capacity in /dev/shm, and returns its host path. The client maps the same buffer, and the bytes of
+     * readShared() and writeShared() calls cross in the buffer rather than in the RMI call.
+     *
+     * @param capacity the size of the buffer in bytes
+     * @return the host path of the buffer, or null if the server does not support shared memory
+     * @throws RemoteException
+     */
+    default String openSharedMemory(int capacity) throws RemoteException {
+        return null;
+    }
+
+    /**
+     * Read up to len bytes from the current position into the start of the shared memory buffer.
+     *
+     * @param pgid the process group id of the Jinix process calling readShared
+     * @param len the maximum number of bytes to read. Never more than the buffer capacity.
+     * @return the number of bytes placed in the buffer, or -1 at end of file
+     * @throws NonReadableChannelException
+     * @throws RemoteException
+     */
+    default int readShared(int pgid, int len) throws NonReadableChannelException, RemoteException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Write len bytes from the start of the shared memory buffer at the current position.
+     *
+     * @param pgid the process group id of the Jinix process calling writeShared
+     * @param len the number of bytes in the buffer
+     * @return the number of bytes written
+     * @throws NonWritableChannelException
+     * @throws RemoteException
+     */
+    default int writeShared(int pgid, int len) throws NonWritableChannelException, RemoteException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Tell the server how the process expects to access a range of the file, so that it can read ahead or drop data
+     * it has staged. The default implementation ignores the hint.
+     *
+     * @param offset the start of the range
+     * @param len the length of the range, or 0 for the rest of the file
+     * @param hint the expected access pattern
+     * @throws RemoteException
+     */
+    default void advise(long offset, long len, AccessHint hint) throws RemoteException {
+    }
+
     long skip(long n) throws RemoteException;
 
     int available() throws RemoteException;
@@ -0,0 +1,22 @@
+package org.rowland.jinix.naming;
+
+import java.io.Serializable;
+
+/**
+ * Activation statistics for a translator bound in the NameSpace. Returned by NameSpace.getTranslatorStatistics().
+ */
+public class TranslatorStatistics implements Serializable {
+
+    public String node;
+    public String command;
+    public int pid; // The pid of the last translator process started, or Integer.MIN_VALUE if never started
+    public boolean active;
+
+    public long activations; // Starts that ended with the translator binding itself
+    public long failures; // Starts that failed, including translators that reported failure
+    public long timeouts; // Starts abandoned because the translator did not bind before the deadline
+
+    public long lastActivationMillis;
+    public long maxActivationMillis;
+    public long totalActivationMillis;
+}
@@ -0,0 +1,44 @@
+package org.rowland.jinix.naming;
+
+import java.io.Serializable;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the entries returned by FileNameSpace.walk(). The filter is evaluated inside the server, so entries that
+ * do not match are never sent to the client. Every criterion that is left at its default value matches all entries.
+ */
+public class WalkFilter implements Serializable {
+
+    public String nameRegex; // matched against the entry name, not the relative path
+    public DirectoryFileData.FileType type;
+    public long minLength = 0;
+    public long maxLength = Long.MAX_VALUE;
+    public long modifiedAfter = Long.MIN_VALUE; // exclusive, in milliseconds since the epoch
+    public long modifiedBefore = Long.MAX_VALUE; // exclusive
+
+    private transient Pattern namePattern;
+
+    /**
+     * @param name the name of the entry
+     * @param attributes the attributes of the entry
+     * @return true if the entry matches every criterion of the filter
+     */
+    public boolean accept(String name, DirectoryFileData attributes) {
+        if (type != null && attributes.type != type) {
+            return false;
+        }
+        if (attributes.length < minLength || attributes.length > maxLength) {
+            return false;
+        }
+        if (attributes.lastModified <= modifiedAfter || attributes.lastModified >= modifiedBefore) {
+            return false;
+        }
+        if (nameRegex != null) {
+            if (namePattern == null) {
+                namePattern = Pattern.compile(nameRegex);
+            }
+            return namePattern.matcher(name).matches();
+        }
+        return true;
+    }
+}
@@ -10,6 +10,15 @@ import java.nio.file.*;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 /**
@@ -23,17 +32,47 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
     private static final Logger logger = Logger.getLogger(SERVER_LOGGER);
 
     private final Path TRANSLATOR_CONFIG_PATH = Paths.get("./config/translator.config");
+    // How long a lookup waits for a translator to bind itself after it has been started
+    private static final long TRANSLATOR_ACTIVATION_TIMEOUT_MILLIS =
+            Long.getLong("jinix.translator.activationTimeout", 30000);
+    // How often translators with an idle timeout are checked, and terminated if they have been idle too long
+    private static final long TRANSLATOR_RECLAIM_INTERVAL_MILLIS =
+            Long.getLong("jinix.translator.reclaimInterval", 30000);
+    private static final String IDLE_TIMEOUT_PREFIX = "idleTimeout.";
+    private static final int UNKNOWN_PID = Integer.MIN_VALUE;
     private final Properties translatorConfig = new Properties();
-    private final Map<String, Object> namingOverlay;
+    private final NamingTrie namingOverlay;
     private FileNameSpace rootFileSystem;
-    private List<FileNameSpace> subFileNameSpaceList = new LinkedList<FileNameSpace>();
+    private final NegativeLookupCache negativeCache;
+    private List<FileNameSpace> subFileNameSpaceList = new CopyOnWriteArrayList<FileNameSpace>();
+    // How long a change listener may take to return before it is dropped as hung
+    private static final long CHANGE_LISTENER_TIMEOUT_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("jinix.ns.changeListenerTimeout", 10000));
+    private static final int MAX_PENDING_CHANGES = 256; // Changes queued for one listener
+    private final List<ChangeListenerHandle> changeListeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService changeNotifier = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "NameSpace change notifier");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService lookupExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "NameSpace batch lookup");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ScheduledExecutorService translatorReclaimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Translator reclaimer");
+        t.setDaemon(true);
+        return t;
+    });
 
     NameSpaceServer(FileNameSpace rootFileSystem) throws RemoteException {
         super();
         this.rootFileSystem = rootFileSystem;
         subFileNameSpaceList.add(rootFileSystem);
+        negativeCache = new NegativeLookupCache(rootFileSystem);
 
-        namingOverlay = new HashMap<String, Object>();
+        namingOverlay = new NamingTrie();
         try {
             if (Files.exists(TRANSLATOR_CONFIG_PATH)) {
                 InputStream fis = Files.newInputStream(TRANSLATOR_CONFIG_PATH,StandardOpenOption.READ);
@@ -45,59 +84,128 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
 
                 for (Map.Entry<Object, Object> entry : translatorConfig.entrySet()) {
                     String translatorNode = (String) entry.getKey();
+                    if (!translatorNode.startsWith("/")) {
+                        continue; // An idle policy, not a binding
+                    }
                     String translatorCmd = (String) entry.getValue();
-                    TranslatorDefinition td = new TranslatorDefinition();
-                    td.node = translatorNode;
-                    td.command = translatorCmd;
-                    namingOverlay.put(translatorNode, td);
+                    namingOverlay.put(translatorNode, newTranslatorDefinition(translatorNode, translatorCmd));
                 }
             }
         } catch (IOException e) {
             throw new RemoteException("IOException loading translator config file: "+TRANSLATOR_CONFIG_PATH, e);
         }
+
+        translatorReclaimer.scheduleWithFixedDelay(this::reclaimIdleTranslators,
+                TRANSLATOR_RECLAIM_INTERVAL_MILLIS, TRANSLATOR_RECLAIM_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create the definition of a translator, with the idle timeout configured for its node. The idle timeout of a
+     * node is configured in translator.config with the key idleTimeout.[binding name], in minutes.
+     */
+    private TranslatorDefinition newTranslatorDefinition(String node, String command) {
+        TranslatorDefinition td = new TranslatorDefinition();
+        td.node = node;
+        td.command = command;
+        String idleTimeout = translatorConfig.getProperty(IDLE_TIMEOUT_PREFIX + node);
+        if (idleTimeout != null) {
+            try {
+                td.idleTimeoutMillis = TimeUnit.MINUTES.toMillis(Long.parseLong(idleTimeout.trim()));
+            } catch (NumberFormatException e) {
+                logger.warning("Invalid translator idle timeout for " + node + ": " + idleTimeout);
+            }
+        }
+        return td;
     }
 
     @Override
     public void bind(String pathName, Remote remoteObj) throws RemoteException {
-        if (namingOverlay.containsKey(pathName)) {
-            Object obj = namingOverlay.get(pathName);
-            if (obj instanceof TranslatorDefinition) {
-                TranslatorDefinition td = (TranslatorDefinition) obj;
-                synchronized (td) {
-                    if (td.remote != null) {
-                        throw new IllegalStateException("Attempt to bind a translator where translator already bound: " + pathName);
-                    }
-                    td.remote = remoteObj;
-                    td.notify();
+        synchronized (namingOverlay) {
+            if (namingOverlay.get(pathName) instanceof TranslatorDefinition) {
+                throw new IllegalStateException("Attempt to bind over a translator, translators bind with " +
+                        "translatorReady(): " + pathName);
+            }
+            namingOverlay.put(pathName, remoteObj);
+        }
+        fireChange(pathName);
+    }
+
+    @Override
+    public void translatorReady(String pathName, int pid, Remote translator) throws RemoteException {
+        Object obj = namingOverlay.get(pathName);
+        if (!(obj instanceof TranslatorDefinition)) {
+            throw new IllegalStateException("No translator defined at: " + pathName);
+        }
+        TranslatorDefinition td = (TranslatorDefinition) obj;
+        synchronized (td) {
+            // startTranslator() records the pid of the process when exec returns, which may be after the process
+            // has bound itself.
+            while (td.pid == UNKNOWN_PID && td.activation != null && !td.activation.isDone()) {
+                long remaining = td.activationStart +
+                        TimeUnit.MILLISECONDS.toNanos(TRANSLATOR_ACTIVATION_TIMEOUT_MILLIS) - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
                 }
-                return;
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(td, remaining);
+                } catch (InterruptedException e) {
+                    throw new RemoteException("Interrupted binding translator: " + pathName);
+                }
+            }
+            if (td.remote != null) {
+                throw new IllegalStateException("Attempt to bind a translator where translator already bound: " + pathName);
+            }
+            if (td.activation == null || td.activation.isDone() || pid != td.pid) {
+                throw new IllegalStateException("Attempt to bind a translator whose activation was abandoned: " +
+                        pathName);
+            }
+            td.remote = translator;
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - td.activationStart);
+            td.activations++;
+            td.lastActivationMillis = millis;
+            td.maxActivationMillis = Math.max(td.maxActivationMillis, millis);
+            td.totalActivationMillis += millis;
+            td.activation.complete(translator);
+            // If the translator is a FileNameSpace, add it to the list of sub namespaces.
+            if (translator instanceof FileNameSpace) {
+                subFileNameSpaceList.add((FileNameSpace) translator);
             }
-            namingOverlay.remove(pathName);
         }
-        namingOverlay.put(pathName, remoteObj);
+        logger.info("Successfully started translator "+td.command + " at: "+td.node);
+        fireChange(pathName);
     }
 
     @Override
-    public void translatorFailure(String pathName) throws RemoteException {
-        if (namingOverlay.containsKey(pathName)) {
-            Object obj = namingOverlay.get(pathName);
-            if (obj instanceof TranslatorDefinition) {
-                TranslatorDefinition td = (TranslatorDefinition) obj;
-                synchronized (td) {
-                    td.remote = null;
-                    td.notify();
+    public void translatorFailure(String pathName, int pid) throws RemoteException {
+        Object obj = namingOverlay.get(pathName);
+        if (!(obj instanceof TranslatorDefinition)) {
+            return;
+        }
+        TranslatorDefinition td = (TranslatorDefinition) obj;
+        synchronized (td) {
+            if (pid != ANY_PID && pid != td.pid) {
+                return; // A process from an abandoned activation, which must not fail the current one
+            }
+            if (td.remote instanceof FileNameSpace) {
+                subFileNameSpaceList.remove(td.remote);
+            }
+            td.remote = null;
+            if (td.activation != null) {
+                if (!td.activation.isDone()) {
+                    td.failures++;
+                    td.activation.completeExceptionally(
+                            new RemoteException("Failure to start translator at: "+td.node));
                 }
-                return;
+                td.activation = null; // The next lookup starts the translator again
             }
-            namingOverlay.remove(pathName);
         }
+        fireChange(pathName);
     }
 
     @Override
     public void unbind(String pathName) throws RemoteException {
-        if (namingOverlay.containsKey(pathName)) {
-            namingOverlay.remove(pathName);
-            return;
+        if (namingOverlay.remove(pathName) != null) {
+            fireChange(pathName);
         }
     }
 
@@ -133,12 +241,12 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
                     return; // If a translator is active and no force, exit.
                 }
             }
-            namingOverlay.remove(path);
-            if (translatorConfig.containsKey(path)) {
-                td = new TranslatorDefinition();
-                td.node = path;
-                td.command = translatorConfig.getProperty(path);
-                namingOverlay.put(path, td);
+            synchronized (namingOverlay) {
+                namingOverlay.remove(path);
+                if (translatorConfig.containsKey(path)) {
+                    td = newTranslatorDefinition(path, translatorConfig.getProperty(path));
+                    namingOverlay.put(path, td);
+                }
             }
         }
 
@@ -154,19 +262,15 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
             } catch (IOException e) {
                 throw new RemoteException("IOException updating translator config file: "+TRANSLATOR_CONFIG_PATH, e);
             }
-            TranslatorDefinition td = new TranslatorDefinition();
-            td.node = path;
-            td.command = cmd;
+            TranslatorDefinition td = newTranslatorDefinition(path, cmd);
             namingOverlay.put(path, td);
         }
 
         if (options.contains(BindTranslatorOption.ACTIVATE)) {
-            TranslatorDefinition td = new TranslatorDefinition();
-            td.node = path;
-            td.command = cmd;
+            TranslatorDefinition td = newTranslatorDefinition(path, cmd);
             namingOverlay.put(path, td);
             try {
-                startTranslator(td); // startTranslator() will populate remote in the TranslatorDefinition
+                activateTranslator(td);
             } catch (InterruptedException e) {
                 throw new RemoteException("Interrupted waiting for translator to register: " + path);
             } catch (InvalidExecutableException e) {
@@ -175,6 +279,7 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
                 throw new RemoteException("IOException starting translator: "+path,e);
             }
         }
+        fireChange(path);
     }
 
     @Override
@@ -198,12 +303,12 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
                 if (td.remote != null) { // there is an active translator here
                     terminateTranslator(td.pid);
                 }
-                namingOverlay.remove(path);
-                if (translatorConfig.containsKey(path)) {
-                    td = new TranslatorDefinition();
-                    td.node = path;
-                    td.command = translatorConfig.getProperty(path);
-                    namingOverlay.put(path, td);
+                synchronized (namingOverlay) {
+                    namingOverlay.remove(path);
+                    if (translatorConfig.containsKey(path)) {
+                        td = newTranslatorDefinition(path, translatorConfig.getProperty(path));
+                        namingOverlay.put(path, td);
+                    }
                 }
             }
         }
@@ -223,6 +328,7 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
                 }
             }
         }
+        fireChange(path);
     }
 
     @Override
@@ -247,7 +353,7 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
         }
 
         if (obj == null) {
-            return rootFileSystem.lookup(pid, remainingPath.getPath());
+            return lookupRootFileSystem(pid, remainingPath.getPath());
         } else {
             if (remainingPath.getPath().isEmpty()) {
                 return obj;
@@ -260,6 +366,282 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
         return null;
     }
 
+    @Override
+    public AttributedLookupResult lookupWithAttributes(int pid, String path) throws RemoteException {
+
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("Lookup path must begin with slash: "+path);
+        }
+
+        RemainingPath remainingPath = new RemainingPath("");
+        Object obj = null;
+        try {
+            obj = lookupInternal(path, remainingPath, true, pid);
+        } catch (FileNotFoundException | InvalidExecutableException e) {
+            throw new RemoteException("NameSpaceServer: translator executable not found", e);
+        }
+
+        if (obj == null) {
+            String rootPath = remainingPath.getPath();
+            if (negativeCache.isMissing(rootPath)) {
+                return null;
+            }
+            long generation = negativeCache.prepare(rootPath);
+            AttributedLookupResult result = rootFileSystem.lookupWithAttributes(pid, rootPath);
+            if (result == null) {
+                negativeCache.putMissing(rootPath, generation);
+            }
+            return result;
+        } else {
+            if (remainingPath.getPath().isEmpty()) {
+                return AttributedLookupResult.of(obj);
+            }
+            if (obj instanceof FileNameSpace) {
+                return ((FileNameSpace) obj).lookupWithAttributes(pid, remainingPath.getPath());
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Object[] lookupAll(int pid, String[] paths) throws RemoteException {
+        Object[] results = new Object[paths.length];
+
+        // Resolve each path in the naming overlay, and group the paths by the FileNameSpace that holds them
+        Map<FileNameSpace, LookupGroup> groups = new LinkedHashMap<>();
+        for (int i = 0; i < paths.length; i++) {
+            String path = paths[i];
+            if (!path.startsWith("/")) {
+                throw new IllegalArgumentException("Lookup path must begin with slash: "+path);
+            }
+
+            RemainingPath remainingPath = new RemainingPath("");
+            Object obj;
+            try {
+                obj = lookupInternal(path, remainingPath, true, pid);
+            } catch (FileNotFoundException | InvalidExecutableException e) {
+                throw new RemoteException("NameSpaceServer: translator executable not found", e);
+            }
+
+            FileNameSpace target;
+            if (obj == null) {
+                if (negativeCache.isMissing(remainingPath.getPath())) {
+                    continue;
+                }
+                target = rootFileSystem;
+            } else if (remainingPath.getPath().isEmpty()) {
+                results[i] = obj;
+                continue;
+            } else if (obj instanceof FileNameSpace) {
+                target = (FileNameSpace) obj;
+            } else {
+                continue;
+            }
+            groups.computeIfAbsent(target, LookupGroup::new).add(i, remainingPath.getPath());
+        }
+
+        if (groups.size() == 1) {
+            lookupGroup(pid, groups.values().iterator().next(), results);
+            return results;
+        }
+
+        List<Future<Void>> futures = new ArrayList<>(groups.size());
+        for (LookupGroup group : groups.values()) {
+            futures.add(lookupExecutor.submit(() -> {
+                lookupGroup(pid, group, results);
+                return null;
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RemoteException) {
+                throw (RemoteException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RemoteException("Failure in batch lookup", e.getCause());
+        } catch (InterruptedException e) {
+            throw new RemoteException("Interrupted in batch lookup");
+        }
+        return results;
+    }
+
+    /**
+     * Lookup the paths of a group in its FileNameSpace, and store the objects found in results.
+     */
+    private void lookupGroup(int pid, LookupGroup group, Object[] results) throws RemoteException {
+        String[] names = group.names.toArray(new String[group.names.size()]);
+        long[] generations = null;
+        if (group.fileNameSpace == rootFileSystem) {
+            generations = new long[names.length];
+            for (int i = 0; i < names.length; i++) {
+                generations[i] = negativeCache.prepare(names[i]);
+            }
+        }
+        Object[] found = group.fileNameSpace.lookupAll(pid, names);
+        for (int i = 0; i < names.length; i++) {
+            results[group.indexes.get(i)] = found[i];
+            if (found[i] == null && generations != null) {
+                negativeCache.putMissing(names[i], generations[i]);
+            }
+        }
+    }
+
+    @Override
+    public Boolean probe(int pid, String path) throws RemoteException {
+
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("Probe path must begin with slash: "+path);
+        }
+
+        NamingTrie.Node match = namingOverlay.longestPrefix(path);
+        Object obj = (match != null ? match.getValue() : null);
+        if (obj == null) {
+            return existsRootFileSystem(pid, path);
+        }
+        String remainingPath = (match.getPathLength() == path.length() ? "" : path.substring(match.getPathLength()));
+        if (remainingPath.isEmpty()) {
+            return Boolean.TRUE;
+        }
+
+        if (obj instanceof TranslatorDefinition) {
+            TranslatorDefinition td = (TranslatorDefinition) obj;
+            if (pid == td.pid) {
+                return existsRootFileSystem(pid, path); // The translator sees the file system under its node
+            }
+            obj = td.remote;
+            if (obj == null) {
+                return null; // Only the translator can answer, and it is not running
+            }
+            td.lastUsed = System.nanoTime();
+        }
+        if (obj instanceof FileNameSpace) {
+            return ((FileNameSpace) obj).exists(pid, remainingPath);
+        }
+        return Boolean.FALSE;
+    }
+
+    /**
+     * Lookup a path in the root FileNameSpace, answering from the negative lookup cache where possible.
+     */
+    private Object lookupRootFileSystem(int pid, String path) throws RemoteException {
+        if (negativeCache.isMissing(path)) {
+            return null;
+        }
+        long generation = negativeCache.prepare(path);
+        Object obj = rootFileSystem.lookup(pid, path);
+        if (obj == null) {
+            negativeCache.putMissing(path, generation);
+        }
+        return obj;
+    }
+
+    private boolean existsRootFileSystem(int pid, String path) throws RemoteException {
+        if (negativeCache.isMissing(path)) {
+            return false;
+        }
+        long generation = negativeCache.prepare(path);
+        boolean exists = rootFileSystem.exists(pid, path);
+        if (!exists) {
+            negativeCache.putMissing(path, generation);
+        }
+        return exists;
+    }
+
+    @Override
+    public void registerChangeListener(NameSpaceChangeListener listener) {
+        changeListeners.add(new ChangeListenerHandle(listener));
+    }
+
+    @Override
+    public void unregisterChangeListener(NameSpaceChangeListener listener) {
+        changeListeners.removeIf(h -> h.listener.equals(listener));
+    }
+
+    /**
+     * Notify the change listeners that the binding of a path has changed. Cached misses under the path are dropped
+     * first. Each listener has its own queue of changes, delivered in order by a notifier thread, so that a slow or
+     * dead listener process delays neither the caller nor the other listeners. A listener that cannot be reached is
+     * removed, and so is a listener whose call has not returned within jinix.ns.changeListenerTimeout ms (default
+     * 10000).
+     *
+     * @param path the path whose binding changed
+     */
+    private void fireChange(String path) {
+        negativeCache.invalidateTree(path);
+        for (ChangeListenerHandle handle : changeListeners) {
+            if (handle.isHung()) {
+                changeListeners.remove(handle);
+                logger.warning("Removing NameSpace change listener that has not returned: " + handle.listener);
+                continue;
+            }
+            handle.enqueue(path);
+        }
+    }
+
+    /**
+     * A change listener and the changes waiting to be delivered to it.
+     */
+    private class ChangeListenerHandle implements Runnable {
+        final NameSpaceChangeListener listener;
+        private final ArrayDeque<String> pending = new ArrayDeque<>();
+        private boolean dispatching = false;
+        private volatile long callStart = 0; // System.nanoTime() when the call in progress started, 0 when idle
+
+        ChangeListenerHandle(NameSpaceChangeListener listener) {
+            this.listener = listener;
+        }
+
+        synchronized void enqueue(String path) {
+            if (pending.size() >= MAX_PENDING_CHANGES) {
+                pending.clear();
+                path = "/"; // Too far behind, so every cached path is invalidated
+            }
+            pending.add(path);
+            if (!dispatching) {
+                dispatching = true;
+                changeNotifier.execute(this);
+            }
+        }
+
+        boolean isHung() {
+            long start = callStart;
+            return (start != 0 && System.nanoTime() - start > CHANGE_LISTENER_TIMEOUT_NANOS);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                String path;
+                synchronized (this) {
+                    path = pending.poll();
+                    if (path == null) {
+                        dispatching = false;
+                        return;
+                    }
+                }
+                callStart = System.nanoTime();
+                try {
+                    listener.nameSpaceChanged(path);
+                } catch (RemoteException e) {
+                    changeListeners.remove(this);
+                    synchronized (this) {
+                        pending.clear();
+                        dispatching = false;
+                    }
+                    return;
+                } finally {
+                    callStart = 0;
+                }
+            }
+        }
+    }
+
     @Override
     public List<FileAccessorStatistics> getOpenFiles(int pid) throws RemoteException {
         List<FileAccessorStatistics> rtrnList = new ArrayList<FileAccessorStatistics>(64);
@@ -296,48 +678,51 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
     private Object lookupInternal(String path, RemainingPath remainingPath, boolean activateTranslators, int pid)
             throws FileNotFoundException, InvalidExecutableException, RemoteException {
 
-        String parentPath = path;
-        while (!parentPath.isEmpty()) {
-            if (namingOverlay.containsKey(parentPath)) {
-                Object obj = namingOverlay.get(parentPath);
-                if (obj instanceof TranslatorDefinition) {
-                    TranslatorDefinition td = (TranslatorDefinition) obj;
-                    // We only want to start the translator if it has not been started (td.remote == null) and if the lookup
-                    // goes into the translator name space except when the translator is performing the lookup itself. We
-                    // allow a translator on top of a file system directory to see the directory contents even if the
-                    // translator is translating the contents for all other processes. Last call from translator bind and
-                    // unbind do not start a translator.
-                    if (td.remote == null && pid != td.pid && (!remainingPath.getPath().isEmpty() || activateTranslators)) {
-                        try {
-                            startTranslator(td); // startTranslator() will populate remote in the TranslatorDefinition
-                        } catch (FileNotFoundException e) {
-                            throw e;
-                        } catch (InterruptedException e) {
-                            throw new RemoteException("Interrupted waiting for translator to register: "+path);
-                        } catch (IOException e) {
-                            throw new RemoteException("IOException starting translator: "+path,e);
-                        }
-                    }
-                    if (remainingPath.getPath().isEmpty() && !activateTranslators) {
-                        return obj; // this will be a translator. bindTranslator uses this value.
-                    }
-                    if (pid != td.pid) {
-                        obj = td.remote;
-                    } else {
-                        // We only get here when the translator is looking up a name under the translators name. Put
-                        // the entire parentPath in the remainingPath and return
-                        remainingPath.setPath(parentPath + remainingPath.getPath());
-                        return null;
-                    }
-                }
+        NamingTrie.Node match;
+        Object obj;
+        do {
+            match = namingOverlay.longestPrefix(path);
+            if (match == null) {
+                remainingPath.setPath(path);
+                return null;
+            }
+            obj = match.getValue();
+        } while (obj == null); // Unbound between the match and reading its value
+        remainingPath.setPath(match.getPathLength() == path.length() ? "" : path.substring(match.getPathLength()));
 
-                return obj;
+        if (obj instanceof TranslatorDefinition) {
+            TranslatorDefinition td = (TranslatorDefinition) obj;
+            td.lastUsed = System.nanoTime();
+            // We only want to start the translator if it has not been started (td.remote == null) and if the lookup
+            // goes into the translator name space except when the translator is performing the lookup itself. We
+            // allow a translator on top of a file system directory to see the directory contents even if the
+            // translator is translating the contents for all other processes. Last call from translator bind and
+            // unbind do not start a translator.
+            if (td.remote == null && pid != td.pid && (!remainingPath.getPath().isEmpty() || activateTranslators)) {
+                try {
+                    activateTranslator(td);
+                } catch (FileNotFoundException e) {
+                    throw e;
+                } catch (InterruptedException e) {
+                    throw new RemoteException("Interrupted waiting for translator to register: "+path);
+                } catch (IOException e) {
+                    throw new RemoteException("IOException starting translator: "+path,e);
+                }
+            }
+            if (remainingPath.getPath().isEmpty() && !activateTranslators) {
+                return obj; // this will be a translator. bindTranslator uses this value.
+            }
+            if (pid != td.pid) {
+                obj = td.remote;
+            } else {
+                // We only get here when the translator is looking up a name under the translators name. Put
+                // the entire path in the remainingPath and return
+                remainingPath.setPath(path);
+                return null;
             }
-            int i = parentPath.lastIndexOf('/');
-            remainingPath.setPath(parentPath.substring(i, parentPath.length()) + remainingPath.getPath());
-            parentPath = parentPath.substring(0, i);
         }
-        return null;
+
+        return obj;
     }
 
     @Override
@@ -356,8 +741,9 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
      * Terminate any active translators. We do this by checking all of the translators in translatorConfig.
      */
     void shutdown() {
+        translatorReclaimer.shutdownNow();
         for (Object key : translatorConfig.keySet()) {
-            Object obj = namingOverlay.get((String) key);
+            Object obj = namingOverlay.get((String) key); // null for idle policy keys
             if (obj != null && obj instanceof TranslatorDefinition) {
                 TranslatorDefinition td = (TranslatorDefinition) obj;
                 if (td.remote != null) {
@@ -367,8 +753,173 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
         }
     }
 
-    private void startTranslator(TranslatorDefinition td)
+    /**
+     * Activate a translator, and wait for it to bind itself. Activation is single flight. The first caller starts
+     * the translator process, and every caller, including the first, waits on the same future, which
+     * translatorReady() and translatorFailure() complete. Callers wait no longer than the activation deadline. A
+     * translator that has not bound by the deadline is terminated, and the next lookup starts it again. Both callbacks
+     * carry the pid of the translator process, and are ignored or refused unless it is the process started by the
+     * current activation. Activations of different translators are independent, and run in parallel.
+     *
+     * @param td the translator
+     * @return the remote object bound by the translator
+     */
+    private Remote activateTranslator(TranslatorDefinition td)
             throws InterruptedException, InvalidExecutableException, IOException {
+        CompletableFuture<Remote> activation;
+        long deadline;
+        boolean starter = false;
+        synchronized (td) {
+            if (td.remote != null) {
+                return td.remote;
+            }
+            if (td.activation == null) {
+                td.activation = new CompletableFuture<>();
+                td.activationStart = System.nanoTime();
+                td.pid = UNKNOWN_PID; // Only the process started by this activation may bind or fail it
+                starter = true;
+            }
+            activation = td.activation;
+            deadline = td.activationStart + TimeUnit.MILLISECONDS.toNanos(TRANSLATOR_ACTIVATION_TIMEOUT_MILLIS);
+        }
+
+        if (starter) {
+            try {
+                startTranslator(td, activation);
+            } catch (InvalidExecutableException | IOException | RuntimeException e) {
+                synchronized (td) {
+                    if (td.activation == activation) {
+                        td.failures++;
+                        td.activation = null;
+                    }
+                }
+                activation.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return activation.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InvalidExecutableException) {
+                throw (InvalidExecutableException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new RemoteException("Failure to start translator at: "+td.node, cause);
+        } catch (TimeoutException e) {
+            boolean abandoned = false;
+            int abandonedPid = UNKNOWN_PID;
+            synchronized (td) {
+                if (td.activation == activation && td.remote == null) {
+                    td.timeouts++;
+                    td.activation = null;
+                    abandonedPid = td.pid;
+                    abandoned = true;
+                }
+            }
+            if (abandoned) {
+                activation.completeExceptionally(
+                        new RemoteException("Timed out waiting for translator to register: "+td.node));
+                logger.warning("Translator did not register within " + TRANSLATOR_ACTIVATION_TIMEOUT_MILLIS +
+                        "ms, terminating: " + td.node);
+                if (abandonedPid != UNKNOWN_PID) { // Otherwise startTranslator() terminates it when exec returns
+                    try {
+                        terminateTranslator(abandonedPid);
+                    } catch (RuntimeException e1) {
+                        // The translator process has already gone
+                    }
+                }
+            } else if (td.remote != null) {
+                return td.remote; // Bound just as the deadline passed
+            }
+            throw new RemoteException("Timed out waiting for translator to register: "+td.node);
+        }
+    }
+
+    /**
+     * Terminate the translators that have an idle timeout, have not been looked up for longer than the timeout, and
+     * have no open files. A reclaimed translator stays bound as a passive translator, so the next lookup under its
+     * node activates it again. A translator is only reclaimed when it reports that it has no open files. Translators
+     * that are not FileNameSpaces, or that cannot count their open files, are never reclaimed.
+     */
+    private void reclaimIdleTranslators() {
+        for (Object obj : namingOverlay.values()) {
+            if (!(obj instanceof TranslatorDefinition)) {
+                continue;
+            }
+            TranslatorDefinition td = (TranslatorDefinition) obj;
+            Remote remote;
+            long lastUsed;
+            synchronized (td) {
+                remote = td.remote;
+                lastUsed = td.lastUsed;
+            }
+            if (td.idleTimeoutMillis <= 0 || !(remote instanceof FileNameSpace) ||
+                    System.nanoTime() - lastUsed < TimeUnit.MILLISECONDS.toNanos(td.idleTimeoutMillis)) {
+                continue;
+            }
+            try {
+                if (((FileNameSpace) remote).getOpenFileCount() != 0) {
+                    continue;
+                }
+            } catch (RemoteException | RuntimeException e) {
+                continue; // translatorFailure() cleans up a translator that has gone
+            }
+            synchronized (td) {
+                // A lookup between the check and here has used the translator
+                if (td.remote != remote || td.lastUsed != lastUsed) {
+                    continue;
+                }
+                td.remote = null;
+                td.activation = null; // The next lookup starts the translator again
+            }
+            subFileNameSpaceList.remove(remote);
+            logger.info("Reclaiming idle translator "+td.command + " at: "+td.node);
+            try {
+                terminateTranslator(td.pid);
+            } catch (RuntimeException e) {
+                // The translator process has already gone
+            }
+            fireChange(td.node);
+        }
+    }
+
+    @Override
+    public List<TranslatorStatistics> getTranslatorStatistics() {
+        List<TranslatorStatistics> rtrnList = new ArrayList<TranslatorStatistics>();
+        for (Object obj : namingOverlay.values()) {
+            if (obj instanceof TranslatorDefinition) {
+                TranslatorDefinition td = (TranslatorDefinition) obj;
+                TranslatorStatistics ts = new TranslatorStatistics();
+                synchronized (td) {
+                    ts.node = td.node;
+                    ts.command = td.command;
+                    ts.pid = td.pid;
+                    ts.active = (td.remote != null);
+                    ts.activations = td.activations;
+                    ts.failures = td.failures;
+                    ts.timeouts = td.timeouts;
+                    ts.lastActivationMillis = td.lastActivationMillis;
+                    ts.maxActivationMillis = td.maxActivationMillis;
+                    ts.totalActivationMillis = td.totalActivationMillis;
+                }
+                rtrnList.add(ts);
+            }
+        }
+        return rtrnList;
+    }
+
+    /**
+     * Start the translator process. The translator binds itself when it is ready, completing the activation.
+     *
+     * @param td the translator
+     * @param activation the activation that the process is started for
+     */
+    private void startTranslator(TranslatorDefinition td, CompletableFuture<Remote> activation)
+            throws InvalidExecutableException, IOException {
         ExecServer es = (ExecServer) lookup(ExecServer.SERVER_NAME);
 
         Map<String,String> env = new HashMap<String,String>();
@@ -393,35 +944,27 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
         }
 
 
+        int translatorPid;
         try {
-            td.pid = es.execTranslator(cmd, execArgs, (RemoteFileHandle) translatorTarget, td.node);
+            translatorPid = es.execTranslator(cmd, execArgs, (RemoteFileHandle) translatorTarget, td.node);
         } catch (FileNotFoundException | InvalidExecutableException | RemoteException e) {
             throw e;
         }
-
-        //TODO: Create a way to pass the pid of the new process to the filesystem to associate the open file with the pid.
-
         synchronized (td) {
-            if (td.remote == null) {
-                try {
-                    td.wait();
-                } catch (InterruptedException e) {
-                    throw e;
-                }
+            if (td.activation == activation) {
+                td.pid = translatorPid;
+                td.notifyAll(); // A translator that bound before exec returned waits for its pid in translatorReady()
+                return;
             }
         }
-
-        // This means that the translator failed to start.
-        if (td.remote == null) {
-            throw new RemoteException("Failure to start translator at: "+td.node);
-        }
-
-        // If the translator is a FileNameSpace, add it to the list of sub namespaces.
-        if (td.remote instanceof FileNameSpace) {
-            subFileNameSpaceList.add((FileNameSpace) td.remote);
+        // The activation was abandoned before exec returned
+        try {
+            terminateTranslator(translatorPid);
+        } catch (RuntimeException e) {
+            // The translator process has already gone
         }
 
-        logger.info("Successfully started translator "+td.command + " at: "+td.node);
+        //TODO: Create a way to pass the pid of the new process to the filesystem to associate the open file with the pid.
     }
 
     private void terminateTranslator(int pid) {
@@ -434,10 +977,40 @@ class NameSpaceServer extends JinixKernelUnicastRemoteObject implements NameSpac
         }
     }
 
+    /**
+     * The paths of a batch lookup that are held by one FileNameSpace.
+     */
+    private static class LookupGroup {
+        final FileNameSpace fileNameSpace;
+        final List<Integer> indexes = new ArrayList<>(); // The index of each path in the batch
+        final List<String> names = new ArrayList<>(); // The path of each name within the FileNameSpace
+
+        LookupGroup(FileNameSpace fileNameSpace) {
+            this.fileNameSpace = fileNameSpace;
+        }
+
+        void add(int index, String name) {
+            indexes.add(index);
+            names.add(name);
+        }
+    }
+
     private static class TranslatorDefinition {
         String node;
         String command;
-        int pid = Integer.MIN_VALUE; // PID is populated when the translator is activated
-        Remote remote; // Remote interface of the translator when the translator is activated
+        int pid = UNKNOWN_PID; // PID is populated when the translator is activated
+        volatile Remote remote; // Remote interface of the translator when the translator is activated
+        CompletableFuture<Remote> activation; // The activation in progress, or completed while remote is bound
+        long activationStart; // System.nanoTime() when the activation started
+        long idleTimeoutMillis; // Reclaim the translator after it has been idle this long, 0 to never reclaim it
+        volatile long lastUsed = System.nanoTime(); // System.nanoTime() of the last lookup under node
+
+        // Activation statistics, guarded by the TranslatorDefinition's monitor
+        long activations;
+        long failures;
+        long timeouts;
+        long lastActivationMillis;
+        long maxActivationMillis;
+        long totalActivationMillis;
     }
 }
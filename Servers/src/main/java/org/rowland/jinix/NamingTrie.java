@@ -0,0 +1,194 @@
+package org.rowland.jinix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The naming overlay of the NameSpaceServer. Bound objects are stored in a trie with one node for each '/' separated
+ * name in their path, so the longest bound prefix of a path is found in a single pass over the path without creating
+ * any strings.
+ *
+ * The trie is read mostly. Lookups take no locks. Each node's children are held in an array that is replaced, never
+ * modified, when a child is added or removed, and values are volatile. Changes are serialized on the trie's monitor.
+ */
+class NamingTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    static class Node {
+        private final String name;
+        private final int pathLength; // Length of the path that ends at this node, including the leading '/'
+        private volatile Object value;
+        private volatile Node[] children = NO_CHILDREN;
+
+        private Node(String name, int pathLength) {
+            this.name = name;
+            this.pathLength = pathLength;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        /**
+         * @return the length of the path of this node, the point at which the remaining path begins
+         */
+        int getPathLength() {
+            return pathLength;
+        }
+
+        private Node child(String path, int start, int end) {
+            int len = end - start;
+            for (Node c : children) {
+                if (c.name.length() == len && path.regionMatches(start, c.name, 0, len)) {
+                    return c;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Node root = new Node("", 0);
+
+    /**
+     * Find the node of the longest prefix of a path that has a value. Prefixes end at a '/' or at the end of the
+     * path, so the prefixes of "/a/b" are "/a/b" and "/a".
+     *
+     * @param path an absolute path
+     * @return the node, or null if no prefix of path has a value
+     */
+    Node longestPrefix(String path) {
+        Node n = root;
+        Node match = null;
+        int start = 1;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            n = n.child(path, start, end);
+            if (n == null) {
+                break;
+            }
+            if (n.value != null) {
+                match = n;
+            }
+            start = end + 1;
+        }
+        return match;
+    }
+
+    Object get(String path) {
+        Node n = find(path);
+        return (n != null ? n.value : null);
+    }
+
+    boolean containsKey(String path) {
+        return get(path) != null;
+    }
+
+    synchronized void put(String path, Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        checkPath(path);
+        Node n = root;
+        int start = 1;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            Node c = n.child(path, start, end);
+            if (c == null) {
+                c = new Node(path.substring(start, end), end);
+                Node[] children = new Node[n.children.length + 1];
+                System.arraycopy(n.children, 0, children, 0, n.children.length);
+                children[n.children.length] = c;
+                n.children = children;
+            }
+            n = c;
+            start = end + 1;
+        }
+        n.value = value;
+    }
+
+    synchronized Object remove(String path) {
+        checkPath(path);
+        Object value = removeBelow(root, path, 1);
+        return value;
+    }
+
+    /**
+     * Remove the value for path from the subtree under n, pruning nodes left with no value and no children.
+     */
+    private Object removeBelow(Node n, String path, int start) {
+        if (start > path.length()) {
+            Object value = n.value;
+            n.value = null;
+            return value;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        Node c = n.child(path, start, end);
+        if (c == null) {
+            return null;
+        }
+        Object value = removeBelow(c, path, end + 1);
+        if (c.value == null && c.children.length == 0) {
+            Node[] children = new Node[n.children.length - 1];
+            int i = 0;
+            for (Node o : n.children) {
+                if (o != c) {
+                    children[i++] = o;
+                }
+            }
+            n.children = children;
+        }
+        return value;
+    }
+
+    /**
+     * @return a snapshot of the values in the trie
+     */
+    List<Object> values() {
+        List<Object> values = new ArrayList<>();
+        collect(root, values);
+        return values;
+    }
+
+    private static void collect(Node n, List<Object> values) {
+        Object value = n.value;
+        if (value != null) {
+            values.add(value);
+        }
+        for (Node c : n.children) {
+            collect(c, values);
+        }
+    }
+
+    private Node find(String path) {
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        Node n = root;
+        int start = 1;
+        while (n != null && start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            n = n.child(path, start, end);
+            start = end + 1;
+        }
+        return n;
+    }
+
+    private static void checkPath(String path) {
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            throw new IllegalArgumentException("Naming overlay path must be absolute: " + path);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package org.rowland.jinix;
+
+import org.rowland.jinix.naming.FileChangeEvent;
+import org.rowland.jinix.naming.FileChangeListener;
+import org.rowland.jinix.naming.FileNameSpace;
+
+import java.nio.file.NotDirectoryException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The paths that were not found in the root FileNameSpace. PATH searches and classpath probing look up the same
+ * missing paths again and again, and the NameSpaceServer answers them from this cache without a call to the root
+ * FileNameSpace.
+ *
+ * Missing paths are grouped by their parent directory. Before a miss in a directory is cached, the cache adds a
+ * change listener on the directory to the root FileNameSpace, and a file created in the directory removes its entry.
+ * A root FileNameSpace that does not support change listeners cannot report files created by other processes, so
+ * misses in its directories expire after jinix.ns.negativeCache.ttl milliseconds (default 2000) instead. The
+ * NameSpaceServer removes the entries under a path whose binding changes in either case. Directories are held in LRU
+ * order, and the least recently used directory is dropped, and its listener removed, when
+ * jinix.ns.negativeCache.directories (default 256) are cached. Each directory holds up to 64 missing names. A miss in
+ * a directory that cannot be watched because of a transient failure is not cached.
+ */
+class NegativeLookupCache {
+
+    private static final int MAX_DIRECTORIES = Integer.getInteger("jinix.ns.negativeCache.directories", 256);
+    private static final int MAX_NAMES = 64; // Missing names cached in one directory
+    private static final long TTL = Long.getLong("jinix.ns.negativeCache.ttl", 2000);
+
+    private final FileNameSpace fileNameSpace;
+    private final Map<String, Directory> directories = new LinkedHashMap<>(64, 0.75f, true);
+    private Listener listener;
+    private final boolean disabled = (MAX_DIRECTORIES <= 0);
+    private volatile boolean listenersSupported = true;
+
+    // Incremented by every invalidation, so that a lookup that raced with an invalidation is not cached.
+    private long generation = 0;
+
+    NegativeLookupCache(FileNameSpace fileNameSpace) {
+        this.fileNameSpace = fileNameSpace;
+    }
+
+    /**
+     * @param path an absolute path in the root FileNameSpace
+     * @return true if path is known not to exist
+     */
+    synchronized boolean isMissing(String path) {
+        int i = path.lastIndexOf('/');
+        Directory d = directories.get(i > 0 ? path.substring(0, i) : "/");
+        if (d == null) {
+            return false;
+        }
+        Long expiry = d.names.get(path.substring(i + 1));
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry < System.currentTimeMillis()) {
+            d.names.remove(path.substring(i + 1));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Prepare to look up a path in the root FileNameSpace, watching its directory for new files.
+     *
+     * @param path an absolute path in the root FileNameSpace
+     * @return the generation to pass to putMissing() if the lookup does not find path, or -1 if the result of the
+     * lookup cannot be cached
+     */
+    long prepare(String path) {
+        if (disabled || !isCacheable(path)) {
+            return -1;
+        }
+        int i = path.lastIndexOf('/');
+        String directory = (i > 0 ? path.substring(0, i) : "/");
+        long lookupGeneration;
+        synchronized (this) {
+            lookupGeneration = generation;
+            if (directories.containsKey(directory)) {
+                return lookupGeneration;
+            }
+        }
+
+        // The listener is added before the lookup, so that a file created after the lookup is always seen.
+        boolean watched = false;
+        if (listenersSupported) {
+            try {
+                fileNameSpace.addChangeListener(directory, getListener());
+                watched = true;
+            } catch (NotDirectoryException e) {
+                return -1; // The directory is missing too, and cannot be watched
+            } catch (RemoteException e) {
+                return -1; // The directory could not be watched this time, so this lookup is not cached
+            } catch (UnsupportedOperationException e) {
+                listenersSupported = false; // Misses expire instead
+            }
+        }
+        if (!watched && TTL <= 0) {
+            return -1;
+        }
+        List<Directory> evicted;
+        synchronized (this) {
+            if (directories.containsKey(directory)) {
+                // Another lookup added the directory first
+                evicted = (watched ? Collections.singletonList(new Directory(directory, true)) :
+                        Collections.emptyList());
+            } else {
+                directories.put(directory, new Directory(directory, watched));
+                evicted = evict();
+            }
+        }
+        for (Directory d : evicted) {
+            removeListener(d);
+        }
+        return lookupGeneration;
+    }
+
+    /**
+     * Cache a path that was not found.
+     *
+     * @param path the path
+     * @param lookupGeneration the value returned by prepare() before the lookup
+     */
+    synchronized void putMissing(String path, long lookupGeneration) {
+        if (lookupGeneration < 0 || lookupGeneration != generation) {
+            return;
+        }
+        int i = path.lastIndexOf('/');
+        Directory d = directories.get(i > 0 ? path.substring(0, i) : "/");
+        if (d != null && d.names.size() < MAX_NAMES) {
+            d.names.put(path.substring(i + 1), (d.watched ? Long.MAX_VALUE : System.currentTimeMillis() + TTL));
+        }
+    }
+
+    /**
+     * Remove the entries for a path and every path below it.
+     *
+     * @param path the path
+     */
+    void invalidateTree(String path) {
+        String prefix = (path.endsWith("/") ? path : path + "/");
+        List<Directory> removed = new ArrayList<>();
+        synchronized (this) {
+            generation++;
+            int i = path.lastIndexOf('/');
+            Directory parent = directories.get(i > 0 ? path.substring(0, i) : "/");
+            if (parent != null) {
+                parent.names.remove(path.substring(i + 1));
+            }
+            Iterator<Directory> it = directories.values().iterator();
+            while (it.hasNext()) {
+                Directory d = it.next();
+                if (d.path.equals(path) || d.path.startsWith(prefix)) {
+                    it.remove();
+                    removed.add(d);
+                }
+            }
+        }
+        for (Directory d : removed) {
+            removeListener(d);
+        }
+    }
+
+    private void fileCreated(String path) {
+        synchronized (this) {
+            generation++;
+            int i = path.lastIndexOf('/');
+            Directory d = directories.get(i > 0 ? path.substring(0, i) : "/");
+            if (d != null) {
+                d.names.remove(path.substring(i + 1));
+            }
+        }
+    }
+
+    /**
+     * Drop the least recently used directories over the limit. Called holding the monitor.
+     *
+     * @return the directories dropped, whose listeners must be removed once the monitor is released
+     */
+    private List<Directory> evict() {
+        List<Directory> evicted = new ArrayList<>(1);
+        Iterator<Directory> it = directories.values().iterator();
+        while (directories.size() > MAX_DIRECTORIES && it.hasNext()) {
+            evicted.add(it.next());
+            it.remove();
+        }
+        return evicted;
+    }
+
+    private void removeListener(Directory d) {
+        if (!d.watched) {
+            return;
+        }
+        try {
+            fileNameSpace.removeChangeListener(d.path, listener);
+        } catch (RemoteException | RuntimeException e) {
+            // The listener ignores events for directories that are not cached
+        }
+    }
+
+    private synchronized Listener getListener() throws RemoteException {
+        if (listener == null) {
+            listener = new Listener();
+        }
+        return listener;
+    }
+
+    /**
+     * Paths that name the current or parent directory, or end with '/', are not cached, as their parent directory
+     * cannot be found from the path.
+     */
+    private static boolean isCacheable(String path) {
+        return (path.length() > 1 && !path.endsWith("/") && !path.endsWith("/.") && !path.endsWith("/..") &&
+                !path.contains("/./") && !path.contains("/../"));
+    }
+
+    private static class Directory {
+        private final String path;
+        private final boolean watched; // false if misses expire, as the directory has no change listener
+        private final Map<String, Long> names = new HashMap<>(); // Missing name to expiry time
+
+        private Directory(String path, boolean watched) {
+            this.path = path;
+            this.watched = watched;
+        }
+    }
+
+    private class Listener extends JinixKernelUnicastRemoteObject implements FileChangeListener {
+
+        private Listener() throws RemoteException {
+            super();
+        }
+
+        @Override
+        public void filesChanged(FileChangeEvent[] events) {
+            for (FileChangeEvent event : events) {
+                if (event.kind == FileChangeEvent.Kind.CREATE) {
+                    fileCreated(event.path);
+                }
+            }
+        }
+    }
+}
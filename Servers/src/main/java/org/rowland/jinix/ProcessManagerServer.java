@@ -1,11 +1,16 @@
 package org.rowland.jinix;
 
 import org.rowland.jinix.io.BaseRemoteFileHandleImpl;
+import org.rowland.jinix.io.FileChangeNotifier;
+import org.rowland.jinix.io.FileLockManager;
+import org.rowland.jinix.io.RemoteDirectoryCursorImpl;
 import org.rowland.jinix.io.SimpleDirectoryRemoteFileHandle;
+import org.rowland.jinix.io.TreeWalkIterator;
 import org.rowland.jinix.naming.*;
 import org.rowland.jinix.proc.*;
 
 import javax.management.remote.rmi.RMIServer;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.*;
@@ -34,6 +39,9 @@ class ProcessManagerServer extends JinixKernelUnicastRemoteObject implements Pro
 
     private Map<EventName, List<EventNotificationHandler>> globalEventHandlers; // Handlers for global events (DEREGISTER and RESUME)
 
+    private FileLockManager lockManager = new FileLockManager(); // Byte range locks on /proc files
+    private FileChangeNotifier changeNotifier = new FileChangeNotifier(); // Change events for /proc directories
+
     private long startUpTime;
 
     ProcessManagerServer(NameSpace rootNameSpace) throws RemoteException {
@@ -119,6 +127,7 @@ class ProcessManagerServer extends JinixKernelUnicastRemoteObject implements Pro
             p.pendingSignals = new LinkedList<>();
 
             processMap.put(Integer.valueOf(p.id), p);
+            changeNotifier.fire(FileChangeEvent.Kind.CREATE, "/" + p.id);
             if (p.id == p.processGroup) {
                 List<Proc> processGroupList = new LinkedList<>();
                 processGroupList.add(p);
@@ -174,6 +183,7 @@ class ProcessManagerServer extends JinixKernelUnicastRemoteObject implements Pro
             data.terminalId = p.terminal;
             triggerProcessEvent(p, EventName.DEREGISTER, data);
             triggerGlobalEvent(EventName.DEREGISTER, data);
+            lockManager.releaseAll(p.id);
 
             // If a thread in the terminating process is listening for signals, notify it so that it won't hang the kernel on shutdown
             synchronized (p.pendingSignals) {
@@ -192,6 +202,7 @@ class ProcessManagerServer extends JinixKernelUnicastRemoteObject implements Pro
                         }
                     }
                     processMap.remove(id);
+                    changeNotifier.fire(FileChangeEvent.Kind.DELETE, "/" + id);
                     return;
                 }
             }
@@ -201,6 +212,7 @@ class ProcessManagerServer extends JinixKernelUnicastRemoteObject implements Pro
             if (p.parentId == 0) {
                 processGroupMap.remove(p.processGroup);
                 processMap.remove(p.id);
+                changeNotifier.fire(FileChangeEvent.Kind.DELETE, "/" + p.id);
                 state = State.SHUTDOWN;
             } else {
                 p.state = ProcessState.SHUTDOWN;
@@ -231,6 +243,7 @@ class ProcessManagerServer extends JinixKernelUnicastRemoteObject implements Pro
                 }
 
                 processMap.remove(id);
+                changeNotifier.fire(FileChangeEvent.Kind.DELETE, "/" + id);
 
                 if (parent != null) {
                     parent.children.remove(p);
@@ -727,6 +740,29 @@ class ProcessManagerServer extends JinixKernelUnicastRemoteObject implements Pro
         throw new NotDirectoryException(directoryPathName);
     }
 
+    @Override
+    public RemoteDirectoryCursor openDirectoryCursor(String directoryPathName)
+            throws NotDirectoryException, RemoteException {
+        return new RemoteDirectoryCursorImpl(this, directoryPathName, Arrays.asList(list(directoryPathName)).iterator());
+    }
+
+    @Override
+    public RemoteDirectoryCursor walk(String rootPathName, int maxDepth, WalkFilter filter)
+            throws NotDirectoryException, RemoteException {
+        return new RemoteDirectoryCursorImpl(new TreeWalkIterator(this, rootPathName, maxDepth, filter), null);
+    }
+
+    @Override
+    public void addChangeListener(String directoryPathName, FileChangeListener listener)
+            throws NotDirectoryException, RemoteException {
+        changeNotifier.addListener(directoryPathName, listener);
+    }
+
+    @Override
+    public void removeChangeListener(String directoryPathName, FileChangeListener listener) throws RemoteException {
+        changeNotifier.removeListener(directoryPathName, listener);
+    }
+
     @Override
     public boolean createFileAtomically(String parentDirectoryPathName, String fileName) throws RemoteException {
         throw new UnsupportedOperationException();
@@ -811,6 +847,17 @@ class ProcessManagerServer extends JinixKernelUnicastRemoteObject implements Pro
         return "/proc";
     }
 
+    @Override
+    public boolean lock(int pid, String filePathName, long position, long size, boolean shared, boolean wait)
+            throws IOException {
+        return lockManager.lock(pid, filePathName, position, size, shared, wait);
+    }
+
+    @Override
+    public void unlock(int pid, String filePathName, long position, long size) throws RemoteException {
+        lockManager.unlock(pid, filePathName, position, size);
+    }
+
     // End of FileNameSpace interface implementation
 
     private static class ProcFNSParts {
@@ -13,6 +13,7 @@ import java.rmi.RemoteException;
  */
 public class StringRemoteFileAccessor extends JinixKernelUnicastRemoteObject implements RemoteFileAccessor {
     private ByteArrayInputStream data;
+    private byte[] stringBytes;
     private int openCount;
     private int size;
     private FileNameSpace server;
@@ -24,7 +25,7 @@ public class StringRemoteFileAccessor extends JinixKernelUnicastRemoteObject imp
         server = parent;
         this.path = path;
         openCount = 1;
-        byte[] stringBytes = fileData.getBytes();
+        stringBytes = fileData.getBytes();
         size = stringBytes.length;
         data = new ByteArrayInputStream(stringBytes);
     }
@@ -53,6 +54,25 @@ public class StringRemoteFileAccessor extends JinixKernelUnicastRemoteObject imp
         return b.length;
     }
 
+    @Override
+    public byte[] readAt(int processGroupId, long position, int len) throws RemoteException {
+        if (data==null) {
+            throw new RemoteException("File closed");
+        }
+        if (position >= size) {
+            return null;
+        }
+        int bsize = (int) Math.min(len, size - position);
+        byte[] b = new byte[bsize];
+        System.arraycopy(stringBytes, (int) position, b, 0, bsize);
+        return b;
+    }
+
+    @Override
+    public int writeAt(int processGroupId, long position, byte[] b) throws RemoteException {
+        return b.length;
+    }
+
     @Override
     public long skip(long n) throws RemoteException {
         if (data==null) {
@@ -96,6 +116,7 @@ public class StringRemoteFileAccessor extends JinixKernelUnicastRemoteObject imp
             openCount--;
             if (openCount == 0) {
                 data = null;
+                stringBytes = null;
                 unexport();
             }
         }
@@ -256,6 +256,11 @@ class FileInputStream extends InputStream
      * @exception  IOException  if an I/O error occurs.
      */
     public int read() throws IOException {
+
+        if (jinixFileInputStream != null) {
+            return jinixFileInputStream.read();
+        }
+
         return read0();
     }
 
@@ -390,6 +390,18 @@ class FileOutputStream extends OutputStream
         writeBytes(b, off, len, fdAccess.getAppend(fd));
     }
 
+    /**
+     * Flushes this file output stream. Under Jinix, any bytes held in the
+     * write behind buffer are written to the file server.
+     *
+     * @exception  IOException  if an I/O error occurs.
+     */
+    public void flush() throws IOException {
+        if (jinixFileOutputStream != null) {
+            jinixFileOutputStream.flush();
+        }
+    }
+
     /**
      * Closes this file output stream and releases any system resources
      * associated with this stream. This file output stream may no longer
@@ -429,7 +441,9 @@ class FileOutputStream extends OutputStream
             fc.close();
         }
 
-        if (jinixFileOutputStream == null) {
+        if (jinixFileOutputStream != null) {
+            jinixFileOutputStream.flush();
+        } else {
             fd.closeAll(new Closeable() {
                 public void close() throws IOException {
                     fd.close();